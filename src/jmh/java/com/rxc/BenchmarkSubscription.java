@@ -0,0 +1,48 @@
+package com.rxc;
+
+import rx.Subscription;
+
+/**
+ * A Subscription for benchmarks that never changes state, so the same subscriptions can be added and disposed
+ * over and over with the same share of them already unsubscribed
+ */
+final class BenchmarkSubscription implements Subscription {
+    private final boolean dead;
+
+    /**
+     * Creates a BenchmarkSubscription
+     * @param dead True to have the subscription report that it already unsubscribed
+     */
+    BenchmarkSubscription(final boolean dead){
+        this.dead = dead;
+    }
+
+    /**
+     * Creates the given number of subscriptions, spreading the dead ones evenly between the live ones
+     * @param count The number of subscriptions
+     * @param deadFraction The share of the subscriptions that already unsubscribed, from 0 to 1
+     * @return The subscriptions
+     */
+    static BenchmarkSubscription[] create(final int count, final double deadFraction){
+        final BenchmarkSubscription[] subscriptions = new BenchmarkSubscription[count];
+        double dead = 0;
+        for (int i = 0; i < count; i++) {
+            dead += deadFraction;
+            subscriptions[i] = new BenchmarkSubscription(dead >= 1);
+            if (dead >= 1) {
+                dead -= 1;
+            }
+        }
+        return subscriptions;
+    }
+
+    @Override
+    public void unsubscribe() {
+        // Nothing to release, and no shared state for concurrent disposals to contend on
+    }
+
+    @Override
+    public boolean isUnsubscribed() {
+        return dead;
+    }
+}
@@ -0,0 +1,63 @@
+package com.rxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the add that cleans up a WEAK DisposeBag after all of it's subscriptions were garbage collected,
+ * at sizes from 10 to 1M subscriptions
+ *
+ * Before every iteration the bag is filled with subscriptions nothing else references, and the garbage collector
+ * is run until they are all cleared, so the single add each iteration measures has every reference to clean up
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class DisposeBagCleanupBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private final BenchmarkSubscription live = new BenchmarkSubscription(false);
+
+    private DisposeBag bag;
+
+    @Setup(Level.Iteration)
+    public void setup() throws InterruptedException {
+        bag = new DisposeBag(ReferencePolicy.WEAK);
+        for (int i = 0; i < size; i++) {
+            bag.add(new BenchmarkSubscription(false));
+        }
+
+        // The sentinel is collected along with the subscriptions, once it's been queued the bag's references have been too
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final WeakReference<Object> sentinel = new WeakReference<>(new Object(), queue);
+        while (bag.deadReferenceCount() < size || queue.poll() != sentinel) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Benchmark
+    public DisposeBag addAfterCollection(){
+        bag.add(live);
+        return bag;
+    }
+}
@@ -0,0 +1,75 @@
+package com.rxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.Subscription;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a DisposeBag and a ConcurrentDisposeBag shared by several threads adding subscriptions to it,
+ * every thread disposes the whole bag after every DISPOSE_EVERY subscriptions it adds, so the bag stays bounded
+ * and disposals keep running alongside the adds. Every thread adds a subscription of it's own, so the only
+ * state the threads share is the bag itself
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Threads(4)
+@Fork(1)
+public class DisposeBagContentionBenchmark {
+
+    private static final int DISPOSE_EVERY = 1024;
+
+    private DisposeBag bag;
+    private ConcurrentDisposeBag concurrentBag;
+
+    @Setup
+    public void setup(){
+        bag = new DisposeBag(ReferencePolicy.STRONG);
+        concurrentBag = new ConcurrentDisposeBag();
+    }
+
+    @Benchmark
+    public void disposeBag(final Adds adds){
+        bag.add(adds.subscription);
+        if (adds.next()) {
+            bag.disposeAll();
+        }
+    }
+
+    @Benchmark
+    public void concurrentDisposeBag(final Adds adds){
+        concurrentBag.add(adds.subscription);
+        if (adds.next()) {
+            concurrentBag.disposeAll();
+        }
+    }
+
+    /**
+     * The subscription a single thread adds, and the count of it's adds
+     */
+    @State(Scope.Thread)
+    public static class Adds {
+        private final Subscription subscription = new BenchmarkSubscription(false);
+        private int count;
+
+        /**
+         * @return True if the thread has added enough subscriptions to dispose the bag
+         */
+        boolean next(){
+            return ++count % DISPOSE_EVERY == 0;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.rxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Func1;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building UnsafeObservableBuilder scripts and subscribing to the Observables they build,
+ * on the plain loop, the resumable runner used by cancellable and backpressured Observables, and with bulk emissions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ObservableBuilderBenchmark {
+
+    private static final Func1<Integer, Integer> IDENTITY = new Func1<Integer, Integer>() {
+        @Override
+        public Integer call(final Integer integer) {
+            return integer;
+        }
+    };
+
+    @Param({"1", "100", "10000"})
+    public int count;
+
+    private UnsafeObservableBuilder<Integer> builder;
+    private Observable<Integer> plain;
+    private Observable<Integer> cancellable;
+    private Observable<Integer> backpressured;
+    private Observable<Integer> range;
+
+    @Setup
+    public void setup(){
+        builder = script(new UnsafeObservableBuilder<Integer>());
+        plain = builder.build();
+        cancellable = script(new UnsafeObservableBuilder<Integer>().cancellable()).build();
+        backpressured = script(new UnsafeObservableBuilder<Integer>().backpressured()).build();
+        range = new UnsafeObservableBuilder<Integer>().emitRange(0, count, IDENTITY).complete().build();
+    }
+
+    @Benchmark
+    public Observable<Integer> build(){
+        return builder.build();
+    }
+
+    @Benchmark
+    public void subscribePlain(final Blackhole blackhole){
+        plain.unsafeSubscribe(new BlackholeSubscriber(blackhole));
+    }
+
+    @Benchmark
+    public void subscribeCancellable(final Blackhole blackhole){
+        cancellable.unsafeSubscribe(new BlackholeSubscriber(blackhole));
+    }
+
+    @Benchmark
+    public void subscribeBackpressured(final Blackhole blackhole){
+        backpressured.unsafeSubscribe(new BlackholeSubscriber(blackhole));
+    }
+
+    @Benchmark
+    public void subscribeRange(final Blackhole blackhole){
+        range.unsafeSubscribe(new BlackholeSubscriber(blackhole));
+    }
+
+    private UnsafeObservableBuilder<Integer> script(final UnsafeObservableBuilder<Integer> builder){
+        for (int i = 0; i < count; i++) {
+            builder.emit(i);
+        }
+        return builder.complete();
+    }
+
+    /**
+     * Consumes everything it is given, so none of the emission is optimised away
+     */
+    private static final class BlackholeSubscriber extends Subscriber<Integer> {
+        private final Blackhole blackhole;
+
+        private BlackholeSubscriber(final Blackhole blackhole){
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onNext(final Integer item) {
+            blackhole.consume(item);
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            blackhole.consume(e);
+        }
+
+        @Override
+        public void onCompleted() {
+            blackhole.consume(this);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.rxc;
+
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.exceptions.CompositeException;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.plugins.RxJavaPlugins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Unsubscribes a detached array of references on a Scheduler without blocking the caller
+ *
+ * A handful of workers claim subscriptions one at a time, so a subscription that blocks while unsubscribing only holds
+ * up the worker it landed on. Every subscription's timeout is counted from when it's own unsubscribe starts,
+ * a subscription that hasn't finished by then is given up on and reported as timed out, and a new worker takes over
+ * the subscriptions the stuck one would have claimed, so subscriptions queued behind a stuck one still get their chance.
+ * A subscription that times out is left to finish unsubscribing on it's own, it just isn't waited on,
+ * and as the timeout has already been reported anything it throws goes to the late error handler
+ */
+final class AsyncDisposal {
+    /**
+     * The late error handler that passes errors on to the RxJavaPlugins error handler
+     */
+    static final Action1<Throwable> PLUGIN_ERROR_HANDLER = new Action1<Throwable>() {
+        @Override
+        public void call(final Throwable error) {
+            RxJavaPlugins.getInstance().getErrorHandler().handleError(error);
+        }
+    };
+
+    private static final int PENDING = 0;
+    private static final int FINISHED = 1;
+    private static final int TIMED_OUT = 2;
+
+    private final SlotReference[] refs;
+    private final Subscription[] subscriptions;
+    private final AtomicIntegerArray states;
+    private final AtomicInteger nextRef = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Subscription> timedOut = new ConcurrentLinkedQueue<>();
+
+    private final Scheduler scheduler;
+    private final long timeout;
+    private final TimeUnit unit;
+    private final Scheduler.Worker timeoutWorker;
+    private final Subscriber<? super Void> subscriber;
+    private final Action1<Throwable> lateErrors;
+    private final DisposeBagMetrics metrics;
+    private final int disposed;
+    private final long start;
+
+    private AsyncDisposal(final SlotReference[] detached, final Scheduler scheduler, final long timeout, final TimeUnit unit,
+                          final Scheduler timeoutScheduler, final Subscriber<? super Void> subscriber,
+                          final Action1<Throwable> lateErrors, final DisposeBagMetrics metrics, final long start){
+        final List<SlotReference> live = new ArrayList<>(detached.length);
+        final List<Subscription> liveSubscriptions = new ArrayList<>(detached.length);
+        for (final SlotReference ref : detached) {
+            final Subscription subscription = ref.get();
+            if (subscription != null && !subscription.isUnsubscribed()) {
+                live.add(ref);
+                liveSubscriptions.add(subscription);
+            } else {
+                ref.clear();
+            }
+        }
+
+        this.refs = live.toArray(new SlotReference[live.size()]);
+        this.subscriptions = liveSubscriptions.toArray(new Subscription[liveSubscriptions.size()]);
+        this.states = new AtomicIntegerArray(refs.length);
+        this.remaining = new AtomicInteger(refs.length);
+        this.scheduler = scheduler;
+        this.timeout = timeout;
+        this.unit = unit;
+        this.timeoutWorker = refs.length > 0 ? timeoutScheduler.createWorker() : null;
+        this.subscriber = subscriber;
+        this.lateErrors = lateErrors;
+        this.metrics = metrics;
+        this.disposed = detached.length;
+        this.start = start;
+    }
+
+    /**
+     * Starts unsubscribing every subscription in the given references that is still subscribed
+     * An attempt is made on every subscription, even if some of them throw or time out
+     * @param detached The references to dispose
+     * @param scheduler The scheduler to unsubscribe on
+     * @param timeout How long each subscription has to finish unsubscribing, counted from when it's unsubscribe starts
+     * @param unit The unit of the timeout
+     * @param timeoutScheduler The scheduler the timeouts are measured on
+     * @param subscriber The subscriber that is completed once every subscription has unsubscribed, or errored if any
+     *                   of them threw or timed out
+     * @param lateErrors The action that is given anything a subscription throws after it timed out
+     * @param metrics The metrics to record the disposal in, or null
+     * @param start The System.nanoTime() the disposal started at
+     */
+    static void dispose(final SlotReference[] detached, final Scheduler scheduler, final long timeout, final TimeUnit unit,
+                        final Scheduler timeoutScheduler, final Subscriber<? super Void> subscriber,
+                        final Action1<Throwable> lateErrors, final DisposeBagMetrics metrics, final long start){
+        final AsyncDisposal disposal = new AsyncDisposal(detached, scheduler, timeout, unit, timeoutScheduler, subscriber,
+                lateErrors, metrics, start);
+        if (disposal.refs.length == 0) {
+            disposal.terminate();
+            return;
+        }
+
+        final int workers = Math.min(disposal.refs.length, Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < workers; i++) {
+            disposal.startWorker();
+        }
+    }
+
+    private void startWorker(){
+        final Scheduler.Worker worker = scheduler.createWorker();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                try {
+                    disposeRefs();
+                } finally {
+                    worker.unsubscribe();
+                }
+            }
+        });
+    }
+
+    private void disposeRefs(){
+        int i = nextRef.getAndIncrement();
+        while (i < refs.length) {
+            final Subscription deadline = scheduleTimeout(i);
+            final Throwable error = SlotTable.dispose(refs[i]);
+            if (!states.compareAndSet(i, PENDING, FINISHED)) {
+                // This worker has been replaced, so it leaves the rest of the subscriptions to it's replacement
+                if (error != null) {
+                    lateErrors.call(error);
+                }
+                return;
+            }
+
+            deadline.unsubscribe();
+            if (error != null) {
+                errors.add(error);
+            }
+            finish();
+            i = nextRef.getAndIncrement();
+        }
+    }
+
+    private Subscription scheduleTimeout(final int i){
+        // Workers aren't required to be thread safe, and every disposing thread schedules timeouts on this one
+        synchronized (timeoutWorker) {
+            return timeoutWorker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    timeout(i);
+                }
+            }, timeout, unit);
+        }
+    }
+
+    private void timeout(final int i){
+        if (states.compareAndSet(i, PENDING, TIMED_OUT)) {
+            timedOut.add(subscriptions[i]);
+            if (nextRef.get() < refs.length) {
+                startWorker();
+            }
+            finish();
+        }
+    }
+
+    private void finish(){
+        if (remaining.decrementAndGet() == 0) {
+            timeoutWorker.unsubscribe();
+            terminate();
+        }
+    }
+
+    private void terminate(){
+        if (metrics != null) {
+            metrics.recordDispose(disposed, errors.size() + timedOut.size(), System.nanoTime() - start);
+        }
+
+        if (subscriber.isUnsubscribed()) {
+            return;
+        }
+
+        if (!timedOut.isEmpty()) {
+            subscriber.onError(new DisposeTimeoutException(timedOut, errors));
+        } else if (errors.size() == 1) {
+            subscriber.onError(errors.peek());
+        } else if (!errors.isEmpty()) {
+            subscriber.onError(new CompositeException("Multiple exceptions", errors));
+        } else {
+            subscriber.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.rxc;
+
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A DisposeBag meant to be shared by many threads at once
+ *
+ * ConcurrentDisposeBag works just like DisposeBag, it only ever weakly references subscriptions,
+ * is fully usable after disposeAll() and cleans up dead references as it goes.
+ *
+ * Subscriptions are spread over a number of independently locked stripes, so threads adding subscriptions
+ * rarely wait on each other. disposeAll() swaps in a fresh set of stripes before unsubscribing anything,
+ * and unsubscribes outside of any lock. Subscriptions added while a disposal is in progress land in the fresh
+ * set of stripes and are left alone until the next disposeAll()
+ */
+public class ConcurrentDisposeBag {
+    private final int stripeCount;
+
+    private final AtomicReference<Generation> generation;
+
+    /**
+     * Creates a ConcurrentDisposeBag with a stripe for every available processor
+     */
+    public ConcurrentDisposeBag(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a ConcurrentDisposeBag
+     * @param concurrencyLevel The number of threads expected to add subscriptions at the same time
+     */
+    public ConcurrentDisposeBag(final int concurrencyLevel){
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive");
+        }
+
+        int stripes = 1;
+        while (stripes < concurrencyLevel) {
+            stripes <<= 1;
+        }
+
+        stripeCount = stripes;
+        generation = new AtomicReference<>(new Generation(stripeCount));
+    }
+
+    /**
+     * Adds a subscription to the ConcurrentDisposeBag
+     * @param subscription The subscription to add
+     */
+    public void add(final Subscription subscription){
+        while (true) {
+            final Stripe stripe = generation.get().stripeForCurrentThread();
+            synchronized (stripe.subscriptions) {
+                if (!stripe.sealed) {
+                    stripe.cleanupReferences();
+                    stripe.subscriptions.add(new SlotReference(subscription, stripe.referenceQueue, stripe.subscriptions));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a collection of subscriptions to the ConcurrentDisposeBag
+     * @param subscriptions The subscriptions to add
+     */
+    public void addAll(final Iterable<Subscription> subscriptions){
+        while (true) {
+            final Stripe stripe = generation.get().stripeForCurrentThread();
+            synchronized (stripe.subscriptions) {
+                if (!stripe.sealed) {
+                    stripe.cleanupReferences();
+                    for (final Subscription subscription : subscriptions) {
+                        stripe.subscriptions.add(new SlotReference(subscription, stripe.referenceQueue, stripe.subscriptions));
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Unsubscribes all added subscribers that are still subscribed and haven't been garbage collected
+     * The ConcurrentDisposeBag is still usable after this method is called, and can be added to while it runs
+     *
+     * An attempt to unsubscribe is made on every subscription in the ConcurrentDisposeBag, even if a subscription throws
+     * If any subscriptions do throw they are removed from the dispose bag and a Composite exception is thrown
+     * that contains all throws at the end of the disposal process
+     */
+    public void disposeAll(){
+        final Generation disposed = generation.getAndSet(new Generation(stripeCount));
+
+        final List<Throwable> errors = new LinkedList<>();
+        for (final Stripe stripe : disposed.stripes) {
+            synchronized (stripe.subscriptions) {
+                stripe.sealed = true;
+                stripe.cleanupReferences();
+            }
+
+            stripe.subscriptions.disposeAll(errors);
+        }
+
+        Exceptions.throwIfAny(errors);
+    }
+
+    /**
+     * @return The number of subscriptions currently held by the ConcurrentDisposeBag, including ones that are waiting to be cleaned up
+     */
+    int size(){
+        int size = 0;
+        for (final Stripe stripe : generation.get().stripes) {
+            synchronized (stripe.subscriptions) {
+                size += stripe.subscriptions.size();
+            }
+        }
+        return size;
+    }
+
+    private static final class Generation {
+        private final Stripe[] stripes;
+
+        Generation(final int stripeCount){
+            stripes = new Stripe[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        Stripe stripeForCurrentThread(){
+            return stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        }
+    }
+
+    private static final class Stripe {
+        private final SlotTable subscriptions = new SlotTable();
+
+        private final ReferenceQueue<Subscription> referenceQueue = new ReferenceQueue<>();
+
+        private boolean sealed;
+
+        private void cleanupReferences(){
+            SlotReference deadRef = (SlotReference)referenceQueue.poll();
+            while (deadRef != null){
+                subscriptions.remove(deadRef);
+                deadRef = (SlotReference)referenceQueue.poll();
+            }
+        }
+    }
+}
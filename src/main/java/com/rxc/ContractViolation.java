@@ -0,0 +1,26 @@
+package com.rxc;
+
+/**
+ * The ways an operator can break the Observable contract towards it's Subscriber, as detected by OperatorStressHarness
+ */
+public enum ContractViolation {
+    /**
+     * The Subscriber was called from one thread while a call from another thread was still running
+     */
+    CONCURRENT_CALL,
+
+    /**
+     * The Subscriber was given an item after it was given an error or completion
+     */
+    ON_NEXT_AFTER_TERMINAL,
+
+    /**
+     * The Subscriber was given an error or completion after it was already given one
+     */
+    DUPLICATE_TERMINAL,
+
+    /**
+     * Calling the operator, or the Subscriber it returned, threw
+     */
+    OPERATOR_THREW
+}
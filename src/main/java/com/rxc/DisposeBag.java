@@ -1,13 +1,21 @@
 package com.rxc;
 
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
 import rx.Subscription;
 import rx.exceptions.CompositeException;
 import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
 
 import java.lang.ref.ReferenceQueue;
-import java.lang.ref.WeakReference;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A simple system for tearing down subscriptions in a memory efficient and re-usable manner
@@ -21,24 +29,116 @@ import java.util.List;
  *
  * Dispose bag itself only ever weakly references subscriptions. So if a subscription added to the dispose bag
  * unsubscribes and becomes unreferenced elsewhere, it won't hang around in memory.
+ * If you would rather have the DisposeBag hold on to it's subscriptions until they are disposed,
+ * create it with ReferencePolicy.STRONG
+ *
+ * Observables passed through track() are removed from the DisposeBag as soon as they terminate or are unsubscribed,
+ * rather than whenever the garbage collector gets around to it
+ *
+ * disposeAllAsync() unsubscribes on a Scheduler instead, with a timeout, for shutdown paths that can't afford
+ * to hang on a subscription that blocks while unsubscribing
+ *
+ * DisposeBags can be arranged in a hierarchy with child(), disposing a DisposeBag disposes every scope beneath it
+ *
+ * DisposeBags created while DisposeBagMetricsRegistry is enabled keep metrics about themselves, see getMetrics()
+ * DisposeBagLeakDetector can report DisposeBags that are dropped without being disposed
  *
  * DisposeBag also cleans up any internal dead references on every interaction, preventing it from bloating in size
+ * unless it was created with a DisposeBagReaper, which does the cleaning up in the background instead
+ * Every reference knows where it is stored, so adding a subscription and cleaning up a dead reference
+ * are constant time no matter how many subscriptions the DisposeBag holds
  */
 public class DisposeBag {
-    private final List<WeakReference<Subscription>> subscriptions = new LinkedList<>();
+    /**
+     * The number of subscriptions a DisposeBag has to hold before disposeAll(Executor) spreads the work across the Executor
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 8 * ParallelDisposal.CHUNK_SIZE;
+
+    private final SlotTable subscriptions;
+
+    private final SlotReference scope;
+
+    // Only ever referenced from here and from child scopes, the parent holds it strongly only while the scope holds
+    // anything, so once a child is dropped and emptied the parent's reference to the scope is cleared
+    private final Subscription scopeToken;
+
+    // Keeps the parent's scope from being cleaned up while this scope can still be added to
+    private final Subscription parentScopeToken;
+
+    private final ReferenceQueue<Subscription> referenceQueue;
+
+    private final ReferencePolicy referencePolicy;
+
+    private final DisposeBagReaper reaper;
+
+    private final DisposeBagMetrics metrics;
+
+    private boolean leakTracked;
+
+    /**
+     * Creates a DisposeBag that weakly references it's subscriptions
+     */
+    public DisposeBag(){
+        this(ReferencePolicy.WEAK, null);
+    }
 
-    private final ReferenceQueue<Subscription> referenceQueue = new ReferenceQueue<>();
+    /**
+     * Creates a DisposeBag
+     * @param referencePolicy How the DisposeBag holds on to the subscriptions added to it
+     */
+    public DisposeBag(final ReferencePolicy referencePolicy){
+        this(referencePolicy, null);
+    }
+
+    /**
+     * Creates a DisposeBag that weakly references it's subscriptions and leaves cleaning up dead references to a reaper
+     * @param reaper The reaper that cleans up the DisposeBag's dead references
+     */
+    public DisposeBag(final DisposeBagReaper reaper){
+        this(ReferencePolicy.WEAK, reaper);
+    }
+
+    /**
+     * Creates a DisposeBag
+     * @param referencePolicy How the DisposeBag holds on to the subscriptions added to it
+     * @param reaper The reaper that cleans up the DisposeBag's dead references,
+     *               or null to have the DisposeBag clean them up itself whenever subscriptions are added
+     */
+    public DisposeBag(final ReferencePolicy referencePolicy, final DisposeBagReaper reaper){
+        this.referencePolicy = referencePolicy;
+        this.reaper = reaper;
+        this.referenceQueue = reaper != null ? reaper.referenceQueue : new ReferenceQueue<Subscription>();
+        this.subscriptions = new SlotTable();
+        this.scope = null;
+        this.scopeToken = null;
+        this.parentScopeToken = null;
+        this.metrics = DisposeBagMetricsRegistry.register(this);
+    }
+
+    private DisposeBag(final DisposeBag parent){
+        this.referencePolicy = parent.referencePolicy;
+        this.reaper = parent.reaper;
+        this.referenceQueue = parent.referenceQueue;
+        this.subscriptions = new SlotTable(parent.subscriptions.lock);
+        this.scopeToken = Subscriptions.empty();
+        this.parentScopeToken = parent.scopeToken;
+        this.scope = SlotReference.scope(subscriptions, scopeToken, referenceQueue, parent.subscriptions);
+        this.metrics = DisposeBagMetricsRegistry.register(this);
+    }
 
     /**
      * Adds a subscription to the DisposeBag
      * @param subscription The subscription to add
      */
     public void add(final Subscription subscription){
-        synchronized (referenceQueue) {
-            subscriptions.add(new WeakReference<>(subscription, referenceQueue));
+        synchronized (subscriptions.lock) {
+            cleanupReferences();
+            subscriptions.add(reference(subscription));
         }
 
-        cleanupReferences();
+        if (metrics != null) {
+            metrics.recordAdd(1);
+        }
     }
 
     /**
@@ -46,17 +146,136 @@ public class DisposeBag {
      * @param subscriptions The subscriptions to add
      */
     public void addAll(final Iterable<Subscription> subscriptions){
-        synchronized (referenceQueue) {
+        int added = 0;
+        synchronized (this.subscriptions.lock) {
+            cleanupReferences();
             for (final Subscription subscription : subscriptions) {
-                this.subscriptions.add(new WeakReference<>(subscription, referenceQueue));
+                this.subscriptions.add(reference(subscription));
+                added++;
             }
         }
 
-        cleanupReferences();
+        if (metrics != null) {
+            metrics.recordAdd(added);
+        }
     }
 
     /**
-     * Unsubscribes all added subscribers that are still subscribed and haven't been garbage collected
+     * Creates a child scope of the DisposeBag
+     *
+     * The child is a DisposeBag of it's own that can be added to and disposed independently, but it is also disposed
+     * whenever this DisposeBag is disposed, along with any scopes created beneath it. Disposing a DisposeBag leaves it's
+     * child scopes attached, call close() on a child to dispose it and detach it from it's parent.
+     * A child that is dropped without being closed is still disposed along with the parent for as long as it holds
+     * anything, once it's empty the parent cleans it up like a dead subscription.
+     * Every scope in the hierarchy shares a single lock, so disposing a whole subtree is one traversal
+     * @return The child scope
+     */
+    public DisposeBag child(){
+        final DisposeBag child = new DisposeBag(this);
+        synchronized (subscriptions.lock) {
+            cleanupReferences();
+            subscriptions.add(child.scope);
+        }
+        return child;
+    }
+
+    /**
+     * Disposes the DisposeBag and, if it is a child scope, detaches it from it's parent
+     * The DisposeBag is still usable after this method is called, but it is no longer disposed along with it's parent
+     *
+     * An attempt to unsubscribe is made on every subscription in the DisposeBag, even if a subscription throws
+     * If any subscriptions do throw a Composite exception is thrown that contains all throws at the end of the disposal process
+     */
+    public void close(){
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final List<Throwable> errors;
+        synchronized (subscriptions.lock) {
+            cleanupReferences();
+            final int disposed = metrics != null ? subscriptions.subtreeSize() : 0;
+            errors = subscriptions.disposeAll(null);
+            if (scope != null) {
+                scope.owner.remove(scope);
+            }
+
+            if (metrics != null) {
+                metrics.recordDispose(disposed, errors != null ? errors.size() : 0, System.nanoTime() - start);
+            }
+        }
+
+        Exceptions.throwIfAny(errors);
+    }
+
+    /**
+     * Returns an Observable that adds each of it's Subscribers to the DisposeBag when subscribed to
+     * The Subscriber is removed from the DisposeBag as soon as the Observable completes, errors or is unsubscribed from,
+     * and is unsubscribed if the DisposeBag is disposed before then
+     * @param observable The Observable to track
+     * @param <T> The class for the Observable
+     * @return The tracked Observable
+     */
+    public <T> Observable<T> track(final Observable<T> observable){
+        return observable.lift(new Observable.Operator<T, T>() {
+            @Override
+            public Subscriber<? super T> call(final Subscriber<? super T> child) {
+                final SlotReference ref;
+                synchronized (subscriptions.lock) {
+                    cleanupReferences();
+                    ref = trackedReference(child);
+                    subscriptions.add(ref);
+                }
+
+                if (metrics != null) {
+                    metrics.recordAdd(1);
+                }
+
+                child.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        remove(ref);
+                    }
+                }));
+
+                return new Subscriber<T>(child) {
+                    @Override
+                    public void onCompleted() {
+                        remove(ref);
+                        child.onCompleted();
+                    }
+
+                    @Override
+                    public void onError(final Throwable e) {
+                        remove(ref);
+                        child.onError(e);
+                    }
+
+                    @Override
+                    public void onNext(final T t) {
+                        child.onNext(t);
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Returns a Transformer that tracks Observables in this DisposeBag, for use with Observable.compose()
+     * @param <T> The class for the Observable
+     * @return The Transformer
+     * @see #track(Observable)
+     */
+    public <T> Observable.Transformer<T, T> tracker(){
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> observable) {
+                return track(observable);
+            }
+        };
+    }
+
+    /**
+     * Unsubscribes all added subscribers that are still subscribed and haven't been garbage collected,
+     * including those added to child scopes
      * The DisposeBag is still usable after this method is called
      *
      * An attempt to unsubscribe is made on every subscription in the DisposeBag, even if a subscription throws
@@ -64,33 +283,208 @@ public class DisposeBag {
      * that contains all throws at the end of the disposal process
      */
     public void disposeAll(){
+        final long start = metrics != null ? System.nanoTime() : 0;
+        synchronized (subscriptions.lock) {
+            cleanupReferences();
+            final int disposed = metrics != null ? subscriptions.subtreeSize() : 0;
+            final List<Throwable> errors = subscriptions.disposeAll(null);
+
+            if (metrics != null) {
+                metrics.recordDispose(disposed, errors != null ? errors.size() : 0, System.nanoTime() - start);
+            }
+
+            Exceptions.throwIfAny(errors);
+        }
+    }
+
+    /**
+     * Unsubscribes all added subscribers that are still subscribed and haven't been garbage collected,
+     * spreading the work across the given Executor if the DisposeBag holds at least DEFAULT_PARALLEL_THRESHOLD subscriptions
+     * @param executor The executor to unsubscribe on
+     * @see #disposeAll(Executor, int)
+     */
+    public void disposeAll(final Executor executor){
+        disposeAll(executor, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Unsubscribes all added subscribers that are still subscribed and haven't been garbage collected
+     * The DisposeBag is still usable after this method is called
+     *
+     * If the DisposeBag holds fewer subscriptions than the threshold this behaves exactly like disposeAll().
+     * Otherwise the subscriptions are taken out of the DisposeBag and unsubscribed in chunks, in parallel, on the given
+     * Executor with the calling thread helping out. This method returns once every chunk has been disposed.
+     * Subscriptions added while the chunks are being disposed stay in the DisposeBag for the next disposal
+     *
+     * An attempt to unsubscribe is made on every subscription in the DisposeBag, even if a subscription throws
+     * If any subscriptions do throw they are removed from the dispose bag and a Composite exception is thrown
+     * that contains all throws at the end of the disposal process
+     * @param executor The executor to unsubscribe on
+     * @param threshold The smallest number of subscriptions worth disposing in parallel
+     */
+    public void disposeAll(final Executor executor, final int threshold){
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final SlotReference[] detached;
+        synchronized (subscriptions.lock) {
+            cleanupReferences();
+            if (subscriptions.subtreeSize() < threshold) {
+                disposeAll();
+                return;
+            }
+
+            detached = subscriptions.detach();
+        }
+
         final List<Throwable> errors = new LinkedList<>();
-        synchronized (referenceQueue) {
-            for (final WeakReference<Subscription> ref : subscriptions) {
-                try {
-                    final Subscription subscription = ref.get();
+        ParallelDisposal.dispose(detached, executor, errors);
 
-                    if (subscription != null && !subscription.isUnsubscribed()) {
-                        subscription.unsubscribe();
-                    }
-                    ref.clear();
-                } catch (final Throwable t){
-                    errors.add(t);
+        if (metrics != null) {
+            metrics.recordDispose(detached.length, errors.size(), System.nanoTime() - start);
+        }
+
+        Exceptions.throwIfAny(errors);
+    }
+
+    /**
+     * Returns an Observable that unsubscribes all added subscribers on the given Scheduler when subscribed to,
+     * measuring the timeout on Schedulers.computation()
+     * @param scheduler The scheduler to unsubscribe on
+     * @param timeout How long the subscriptions have to finish unsubscribing
+     * @param unit The unit of the timeout
+     * @return An Observable that completes once every subscription has been unsubscribed
+     * @see #disposeAllAsync(Scheduler, long, TimeUnit, Scheduler)
+     */
+    public Observable<Void> disposeAllAsync(final Scheduler scheduler, final long timeout, final TimeUnit unit){
+        return disposeAllAsync(scheduler, timeout, unit, Schedulers.computation());
+    }
+
+    /**
+     * Returns an Observable that unsubscribes all added subscribers that are still subscribed and haven't been
+     * garbage collected on the given Scheduler when subscribed to, without blocking the subscribing thread
+     * The DisposeBag is still usable while and after the Observable runs,
+     * subscriptions added after it is subscribed to stay in the DisposeBag for the next disposal
+     *
+     * Subscriptions are unsubscribed by a few workers of the scheduler at once, so a subscription that blocks while
+     * unsubscribing doesn't stop the others from being unsubscribed. Every subscription has until the timeout elapses,
+     * counted from when it's own unsubscribe starts, to finish unsubscribing. A subscription that doesn't is given up on
+     * and a new worker carries on with the subscriptions after it, so the scheduler should be one that can keep creating
+     * workers that stuck subscriptions don't block, such as Schedulers.io().
+     * The Observable completes once every subscription has unsubscribed,
+     * errors with a DisposeTimeoutException listing the subscriptions that didn't make it in time if any timed out,
+     * and otherwise errors just like disposeAll() throws if any subscriptions threw.
+     * Anything a subscription throws after it timed out goes to the RxJavaPlugins error handler
+     * @param scheduler The scheduler to unsubscribe on
+     * @param timeout How long each subscription has to finish unsubscribing, counted from when it's unsubscribe starts
+     * @param unit The unit of the timeout
+     * @param timeoutScheduler The scheduler the timeouts are measured on, it should not be one that stuck subscriptions can block
+     * @return An Observable that completes once every subscription has been unsubscribed
+     */
+    public Observable<Void> disposeAllAsync(final Scheduler scheduler, final long timeout, final TimeUnit unit,
+                                            final Scheduler timeoutScheduler){
+        return disposeAllAsync(scheduler, timeout, unit, timeoutScheduler, AsyncDisposal.PLUGIN_ERROR_HANDLER);
+    }
+
+    /**
+     * Returns an Observable that unsubscribes all added subscribers on the given Scheduler when subscribed to
+     * @param scheduler The scheduler to unsubscribe on
+     * @param timeout How long each subscription has to finish unsubscribing, counted from when it's unsubscribe starts
+     * @param unit The unit of the timeout
+     * @param timeoutScheduler The scheduler the timeouts are measured on
+     * @param lateErrors The action that is given anything a subscription throws after it timed out
+     * @return An Observable that completes once every subscription has been unsubscribed
+     * @see #disposeAllAsync(Scheduler, long, TimeUnit, Scheduler)
+     */
+    Observable<Void> disposeAllAsync(final Scheduler scheduler, final long timeout, final TimeUnit unit,
+                                     final Scheduler timeoutScheduler, final Action1<Throwable> lateErrors){
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+
+        return Observable.create(new Observable.OnSubscribe<Void>() {
+            @Override
+            public void call(final Subscriber<? super Void> subscriber) {
+                final long start = metrics != null ? System.nanoTime() : 0;
+                final SlotReference[] detached;
+                synchronized (subscriptions.lock) {
+                    cleanupReferences();
+                    detached = subscriptions.detach();
                 }
+
+                AsyncDisposal.dispose(detached, scheduler, timeout, unit, timeoutScheduler, subscriber, lateErrors,
+                        metrics, start);
             }
+        });
+    }
 
-            cleanupReferences();
-            subscriptions.clear();
+    /**
+     * Returns the metrics kept for the DisposeBag
+     * Metrics are only kept for DisposeBags created while DisposeBagMetricsRegistry is enabled
+     * @return The metrics, or null if the DisposeBag doesn't keep metrics
+     */
+    public DisposeBagMetrics getMetrics(){
+        return metrics;
+    }
 
-            Exceptions.throwIfAny(errors);
+    /**
+     * @return The number of subscriptions currently held by the DisposeBag, including ones that are waiting to be cleaned up
+     */
+    int size(){
+        synchronized (subscriptions.lock) {
+            return subscriptions.size();
+        }
+    }
+
+    /**
+     * @return The number of subscriptions held by the DisposeBag that have been garbage collected but not cleaned up yet
+     */
+    int deadReferenceCount(){
+        synchronized (subscriptions.lock) {
+            return subscriptions.clearedCount();
+        }
+    }
+
+    private SlotReference reference(final Subscription subscription){
+        if (referencePolicy == ReferencePolicy.STRONG) {
+            return sampled(subscriptions.strongReference(subscription));
+        }
+        return sampled(new SlotReference(subscription, referenceQueue, subscriptions));
+    }
+
+    private SlotReference trackedReference(final Subscription subscription){
+        if (referencePolicy == ReferencePolicy.STRONG) {
+            return sampled(SlotReference.strong(subscription, subscriptions));
+        }
+        return sampled(new SlotReference(subscription, referenceQueue, subscriptions));
+    }
+
+    private SlotReference sampled(final SlotReference ref){
+        if (DisposeBagLeakDetector.sample()) {
+            ref.allocationSite = new Throwable("Subscription added to DisposeBag");
+            if (!leakTracked) {
+                leakTracked = true;
+                DisposeBagLeakDetector.track(this, subscriptions);
+            }
+        }
+        return ref;
+    }
+
+    private void remove(final SlotReference ref){
+        synchronized (subscriptions.lock) {
+            if (subscriptions.remove(ref)) {
+                ref.clear();
+            }
         }
     }
 
     private void cleanupReferences(){
-        WeakReference deadRef = (WeakReference)referenceQueue.poll();
+        if (reaper != null) {
+            return;
+        }
+
+        SlotReference deadRef = (SlotReference)referenceQueue.poll();
         while (deadRef != null){
-            subscriptions.remove(deadRef);
-            deadRef = (WeakReference)referenceQueue.poll();
+            deadRef.owner.remove(deadRef);
+            deadRef = (SlotReference)referenceQueue.poll();
         }
     }
 }
@@ -0,0 +1,135 @@
+package com.rxc;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Exposes DisposeBagMetricsRegistry through JMX as a DisposeBagsMXBean named com.rxc:type=DisposeBags
+ *
+ * This is kept apart from the registry so platforms without JMX can still use DisposeBag metrics
+ */
+public final class DisposeBagJmx implements DisposeBagsMXBean {
+    /**
+     * The name the DisposeBagsMXBean is registered under
+     */
+    public static final String OBJECT_NAME = "com.rxc:type=DisposeBags";
+
+    private DisposeBagJmx(){
+    }
+
+    /**
+     * Registers the DisposeBagsMXBean with the platform MBean server, if it isn't registered already
+     * @throws JMException If the MBean server refuses the MXBean
+     */
+    public static void register() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new DisposeBagJmx(), name);
+        }
+    }
+
+    /**
+     * Removes the DisposeBagsMXBean from the platform MBean server, if it is registered
+     * @throws JMException If the MBean server refuses to remove the MXBean
+     */
+    public static void unregister() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return DisposeBagMetricsRegistry.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        DisposeBagMetricsRegistry.setEnabled(enabled);
+    }
+
+    @Override
+    public int getBagCount() {
+        return DisposeBagMetricsRegistry.getBagCount();
+    }
+
+    @Override
+    public long getLiveCount() {
+        return DisposeBagMetricsRegistry.getLiveCount();
+    }
+
+    @Override
+    public long getDeadReferenceBacklog() {
+        return DisposeBagMetricsRegistry.getDeadReferenceBacklog();
+    }
+
+    @Override
+    public long getAddCount() {
+        return DisposeBagMetricsRegistry.getAddCount();
+    }
+
+    @Override
+    public long getDisposeCount() {
+        return DisposeBagMetricsRegistry.getDisposeCount();
+    }
+
+    @Override
+    public long getDisposeFailureCount() {
+        return DisposeBagMetricsRegistry.getDisposeFailureCount();
+    }
+
+    @Override
+    public long getDisposeLatencyP50Nanos() {
+        return DisposeBagMetricsRegistry.getDisposeLatency().getPercentileNanos(50);
+    }
+
+    @Override
+    public long getDisposeLatencyP99Nanos() {
+        return DisposeBagMetricsRegistry.getDisposeLatency().getPercentileNanos(99);
+    }
+
+    @Override
+    public long getDisposeLatencyMaxNanos() {
+        return DisposeBagMetricsRegistry.getDisposeLatency().getMaxNanos();
+    }
+
+    @Override
+    public String[] largestBags(final int count) {
+        final List<DisposeBagMetrics> metrics = DisposeBagMetricsRegistry.getMetrics();
+        final int[] liveCounts = new int[metrics.size()];
+        final Integer[] order = new Integer[metrics.size()];
+        for (int i = 0; i < order.length; i++) {
+            liveCounts[i] = metrics.get(i).getLiveCount();
+            order[i] = i;
+        }
+
+        final List<Integer> sorted = Arrays.asList(order);
+        Collections.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return liveCounts[b] < liveCounts[a] ? -1 : liveCounts[b] == liveCounts[a] ? 0 : 1;
+            }
+        });
+
+        final String[] largest = new String[Math.min(count, order.length)];
+        for (int i = 0; i < largest.length; i++) {
+            final DisposeBagMetrics bagMetrics = metrics.get(sorted.get(i));
+            largest[i] = bagMetrics.getName()
+                    + " live=" + liveCounts[sorted.get(i)]
+                    + " adds=" + bagMetrics.getAddCount()
+                    + " disposes=" + bagMetrics.getDisposeCount()
+                    + " failures=" + bagMetrics.getDisposeFailureCount()
+                    + " maxDisposeNanos=" + bagMetrics.getDisposeLatency().getMaxNanos();
+        }
+        return largest;
+    }
+}
@@ -0,0 +1,56 @@
+package com.rxc;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A report of a DisposeBag that was garbage collected while it still held subscriptions that were subscribed
+ *
+ * @see DisposeBagLeakDetector
+ */
+public final class DisposeBagLeak {
+    private final int liveCount;
+
+    private final List<Throwable> allocationSites;
+
+    DisposeBagLeak(final int liveCount, final List<Throwable> allocationSites){
+        this.liveCount = liveCount;
+        this.allocationSites = Collections.unmodifiableList(allocationSites);
+    }
+
+    /**
+     * @return The number of subscriptions that were still subscribed when the DisposeBag was garbage collected
+     */
+    public int getLiveCount(){
+        return liveCount;
+    }
+
+    /**
+     * Returns where the leaked subscriptions were added to the DisposeBag
+     * Only sampled adds record where they happened, so there may be fewer sites than leaked subscriptions, or none at all
+     * @return A Throwable for each sampled add of a leaked subscription, with the stack trace of the add
+     */
+    public List<Throwable> getAllocationSites(){
+        return allocationSites;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder()
+                .append("DisposeBag was garbage collected without being disposed, leaking ")
+                .append(liveCount)
+                .append(" subscription(s)");
+
+        if (allocationSites.isEmpty()) {
+            builder.append(", none of which were sampled");
+        }
+
+        for (final Throwable site : allocationSites) {
+            builder.append("\nSubscription added at:");
+            for (final StackTraceElement element : site.getStackTrace()) {
+                builder.append("\n\tat ").append(element);
+            }
+        }
+        return builder.toString();
+    }
+}
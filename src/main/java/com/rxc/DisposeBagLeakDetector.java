@@ -0,0 +1,140 @@
+package com.rxc;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds DisposeBags that were dropped without being disposed while they still held live subscriptions
+ *
+ * A sample of every add to a DisposeBag records the stack trace of the add. Once a DisposeBag with sampled adds is
+ * garbage collected, the detector checks whether it still held any subscriptions that were subscribed,
+ * and if so reports the leak along with the stack traces of the sampled adds of the leaked subscriptions.
+ * Child scopes are only reported once they are closed, until then their parent still disposes whatever they hold
+ *
+ * Leak detection is off by default. Sampling costs a stack trace per sampled add, so a low rate such as 0.01
+ * is cheap enough to leave on in production. Leaks are checked for on sampled adds, or whenever reportLeaks() is called,
+ * and are logged unless a Listener is set
+ */
+public final class DisposeBagLeakDetector {
+    /**
+     * Receives leak reports
+     */
+    public interface Listener {
+        /**
+         * Called when a leaked DisposeBag is found
+         * @param leak The leak
+         */
+        void onLeak(DisposeBagLeak leak);
+    }
+
+    private static final Listener LOGGING_LISTENER = new Listener() {
+        @Override
+        public void onLeak(final DisposeBagLeak leak) {
+            Logger.getLogger(DisposeBagLeakDetector.class.getName()).log(Level.SEVERE, leak.toString());
+        }
+    };
+
+    private static volatile int samplingInterval;
+
+    private static volatile Listener listener = LOGGING_LISTENER;
+
+    private static final ReferenceQueue<DisposeBag> collected = new ReferenceQueue<>();
+
+    private static final Set<Tracker> trackers = Collections.newSetFromMap(new ConcurrentHashMap<Tracker, Boolean>());
+
+    private DisposeBagLeakDetector(){
+    }
+
+    /**
+     * Sets the fraction of adds that record where they happened
+     * @param rate The sampling rate, between 0 which turns leak detection off and 1 which samples every add
+     */
+    public static void setSamplingRate(final double rate){
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("rate must be between 0 and 1");
+        }
+        samplingInterval = rate == 0 ? 0 : (int) Math.max(1, Math.round(1 / rate));
+    }
+
+    /**
+     * @return The fraction of adds that record where they happened
+     */
+    public static double getSamplingRate(){
+        final int interval = samplingInterval;
+        return interval == 0 ? 0 : 1.0 / interval;
+    }
+
+    /**
+     * Sets who leaks are reported to
+     * @param listener The listener, or null to log leaks with java.util.logging
+     */
+    public static void setListener(final Listener listener){
+        DisposeBagLeakDetector.listener = listener != null ? listener : LOGGING_LISTENER;
+    }
+
+    /**
+     * Reports every leaked DisposeBag that has been garbage collected since the last check
+     * @return The number of leaks reported
+     */
+    public static int reportLeaks(){
+        int reported = 0;
+        Tracker tracker = (Tracker) collected.poll();
+        while (tracker != null) {
+            trackers.remove(tracker);
+            final DisposeBagLeak leak = tracker.findLeak();
+            if (leak != null) {
+                listener.onLeak(leak);
+                reported++;
+            }
+            tracker = (Tracker) collected.poll();
+        }
+        return reported;
+    }
+
+    /**
+     * @return Whether the add currently being performed should record where it happened
+     */
+    static boolean sample(){
+        final int interval = samplingInterval;
+        return interval != 0 && (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0);
+    }
+
+    /**
+     * Starts watching a DisposeBag for leaks
+     * @param bag The DisposeBag
+     * @param subscriptions The DisposeBag's table
+     */
+    static void track(final DisposeBag bag, final SlotTable subscriptions){
+        reportLeaks();
+        trackers.add(new Tracker(bag, subscriptions));
+    }
+
+    private static final class Tracker extends PhantomReference<DisposeBag> {
+        private final SlotTable subscriptions;
+
+        Tracker(final DisposeBag bag, final SlotTable subscriptions) {
+            super(bag, collected);
+            this.subscriptions = subscriptions;
+        }
+
+        DisposeBagLeak findLeak(){
+            final List<Throwable> sites = new ArrayList<>();
+            final int live;
+            synchronized (subscriptions.lock) {
+                if (subscriptions.scope != null && subscriptions.scope.slot >= 0) {
+                    return null;
+                }
+                live = subscriptions.collectLive(sites);
+            }
+            return live > 0 ? new DisposeBagLeak(live, sites) : null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.rxc;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and disposal latencies for a single DisposeBag
+ *
+ * DisposeBags only keep metrics while DisposeBagMetricsRegistry is enabled, see DisposeBag.getMetrics().
+ * The metrics only weakly reference their DisposeBag, once the DisposeBag is garbage collected it's counters
+ * are folded into the registry's totals
+ */
+public final class DisposeBagMetrics {
+    private final BagReference bag;
+
+    private volatile String name;
+
+    private final AtomicLong addCount = new AtomicLong();
+
+    private final AtomicLong disposeCount = new AtomicLong();
+
+    private final AtomicLong disposedCount = new AtomicLong();
+
+    private final AtomicLong disposeFailureCount = new AtomicLong();
+
+    private final LatencyHistogram disposeLatency = new LatencyHistogram();
+
+    DisposeBagMetrics(final DisposeBag bag, final ReferenceQueue<? super DisposeBag> collected){
+        this.bag = new BagReference(bag, collected, this);
+        this.name = "DisposeBag@" + Integer.toHexString(System.identityHashCode(bag));
+    }
+
+    /**
+     * @return The name the DisposeBag is reported under
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * Sets the name the DisposeBag is reported under, by default this is based on the DisposeBag's identity hash code
+     * @param name The name
+     */
+    public void setName(final String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The number of subscriptions the DisposeBag currently holds, including ones that are waiting to be cleaned up
+     */
+    public int getLiveCount(){
+        final DisposeBag disposeBag = bag.get();
+        return disposeBag != null ? disposeBag.size() : 0;
+    }
+
+    /**
+     * Counts the subscriptions that have been garbage collected but are still waiting to be cleaned out of the DisposeBag
+     * This walks the whole DisposeBag while holding it's lock, so it is meant for occasional inspection only
+     * @return The number of dead references waiting to be cleaned up
+     */
+    public int getDeadReferenceBacklog(){
+        final DisposeBag disposeBag = bag.get();
+        return disposeBag != null ? disposeBag.deadReferenceCount() : 0;
+    }
+
+    /**
+     * @return The number of subscriptions that have been added to the DisposeBag
+     */
+    public long getAddCount(){
+        return addCount.get();
+    }
+
+    /**
+     * @return The number of times the DisposeBag has been disposed
+     */
+    public long getDisposeCount(){
+        return disposeCount.get();
+    }
+
+    /**
+     * @return The number of subscriptions that have been disposed by the DisposeBag
+     */
+    public long getDisposedSubscriptionCount(){
+        return disposedCount.get();
+    }
+
+    /**
+     * @return The number of unsubscribes that threw while the DisposeBag was being disposed
+     */
+    public long getDisposeFailureCount(){
+        return disposeFailureCount.get();
+    }
+
+    /**
+     * @return How long each disposal of the DisposeBag took
+     */
+    public LatencyHistogram getDisposeLatency(){
+        return disposeLatency;
+    }
+
+    void recordAdd(final int count){
+        addCount.addAndGet(count);
+    }
+
+    void recordDispose(final int disposed, final int failures, final long nanos){
+        disposeCount.incrementAndGet();
+        disposedCount.addAndGet(disposed);
+        disposeFailureCount.addAndGet(failures);
+        disposeLatency.record(nanos);
+    }
+
+    static final class BagReference extends WeakReference<DisposeBag> {
+        final DisposeBagMetrics metrics;
+
+        BagReference(final DisposeBag bag, final ReferenceQueue<? super DisposeBag> queue, final DisposeBagMetrics metrics) {
+            super(bag, queue);
+            this.metrics = metrics;
+        }
+    }
+}
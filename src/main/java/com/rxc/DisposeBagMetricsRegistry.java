@@ -0,0 +1,171 @@
+package com.rxc;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The registry of metrics for every DisposeBag in the process
+ *
+ * The registry is disabled by default. While it is disabled DisposeBags don't keep any metrics at all,
+ * so there is no cost to having it around. DisposeBags created while it is enabled register their metrics here,
+ * where they can be inspected directly or through JMX with DisposeBagJmx
+ */
+public final class DisposeBagMetricsRegistry {
+    private static volatile boolean enabled;
+
+    private static final Set<DisposeBagMetrics> metrics =
+            Collections.newSetFromMap(new ConcurrentHashMap<DisposeBagMetrics, Boolean>());
+
+    private static final ReferenceQueue<DisposeBag> collected = new ReferenceQueue<>();
+
+    private static final AtomicLong retiredAddCount = new AtomicLong();
+
+    private static final AtomicLong retiredDisposeCount = new AtomicLong();
+
+    private static final AtomicLong retiredDisposeFailureCount = new AtomicLong();
+
+    private static final LatencyHistogram retiredDisposeLatency = new LatencyHistogram();
+
+    private DisposeBagMetricsRegistry(){
+    }
+
+    /**
+     * Turns metrics on or off for DisposeBags created from now on
+     * DisposeBags that already exist keep doing whatever they were doing when they were created
+     * @param enabled Whether new DisposeBags should keep metrics
+     */
+    public static void setEnabled(final boolean enabled){
+        DisposeBagMetricsRegistry.enabled = enabled;
+    }
+
+    /**
+     * @return Whether new DisposeBags keep metrics
+     */
+    public static boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * @return The metrics of every DisposeBag that keeps metrics and hasn't been garbage collected
+     */
+    public static List<DisposeBagMetrics> getMetrics(){
+        retireCollected();
+        return new ArrayList<>(metrics);
+    }
+
+    /**
+     * @return The number of DisposeBags that keep metrics and haven't been garbage collected
+     */
+    public static int getBagCount(){
+        retireCollected();
+        return metrics.size();
+    }
+
+    /**
+     * @return The number of subscriptions held by every DisposeBag that keeps metrics
+     */
+    public static long getLiveCount(){
+        long live = 0;
+        for (final DisposeBagMetrics bagMetrics : getMetrics()) {
+            live += bagMetrics.getLiveCount();
+        }
+        return live;
+    }
+
+    /**
+     * Counts the dead references waiting to be cleaned up in every DisposeBag that keeps metrics
+     * This walks every DisposeBag, so it is meant for occasional inspection only
+     * @return The number of dead references waiting to be cleaned up
+     */
+    public static long getDeadReferenceBacklog(){
+        long backlog = 0;
+        for (final DisposeBagMetrics bagMetrics : getMetrics()) {
+            backlog += bagMetrics.getDeadReferenceBacklog();
+        }
+        return backlog;
+    }
+
+    /**
+     * @return The number of subscriptions ever added to DisposeBags that keep metrics
+     */
+    public static long getAddCount(){
+        final List<DisposeBagMetrics> live = getMetrics();
+        long count = retiredAddCount.get();
+        for (final DisposeBagMetrics bagMetrics : live) {
+            count += bagMetrics.getAddCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of times DisposeBags that keep metrics have been disposed
+     */
+    public static long getDisposeCount(){
+        final List<DisposeBagMetrics> live = getMetrics();
+        long count = retiredDisposeCount.get();
+        for (final DisposeBagMetrics bagMetrics : live) {
+            count += bagMetrics.getDisposeCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of unsubscribes that threw while DisposeBags that keep metrics were being disposed
+     */
+    public static long getDisposeFailureCount(){
+        final List<DisposeBagMetrics> live = getMetrics();
+        long count = retiredDisposeFailureCount.get();
+        for (final DisposeBagMetrics bagMetrics : live) {
+            count += bagMetrics.getDisposeFailureCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return How long each disposal of every DisposeBag that keeps metrics took, merged into a single histogram
+     */
+    public static LatencyHistogram getDisposeLatency(){
+        final List<DisposeBagMetrics> live = getMetrics();
+        final LatencyHistogram merged = new LatencyHistogram();
+        retiredDisposeLatency.addTo(merged);
+        for (final DisposeBagMetrics bagMetrics : live) {
+            bagMetrics.getDisposeLatency().addTo(merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Creates and registers metrics for a DisposeBag if the registry is enabled
+     * @param bag The DisposeBag
+     * @return The metrics, or null if the registry is disabled
+     */
+    static DisposeBagMetrics register(final DisposeBag bag){
+        if (!enabled) {
+            return null;
+        }
+
+        retireCollected();
+        final DisposeBagMetrics bagMetrics = new DisposeBagMetrics(bag, collected);
+        metrics.add(bagMetrics);
+        return bagMetrics;
+    }
+
+    private static void retireCollected(){
+        DisposeBagMetrics.BagReference ref = (DisposeBagMetrics.BagReference)collected.poll();
+        while (ref != null) {
+            final DisposeBagMetrics bagMetrics = ref.metrics;
+            if (metrics.remove(bagMetrics)) {
+                retiredAddCount.addAndGet(bagMetrics.getAddCount());
+                retiredDisposeCount.addAndGet(bagMetrics.getDisposeCount());
+                retiredDisposeFailureCount.addAndGet(bagMetrics.getDisposeFailureCount());
+                bagMetrics.getDisposeLatency().addTo(retiredDisposeLatency);
+            }
+            ref = (DisposeBagMetrics.BagReference)collected.poll();
+        }
+    }
+}
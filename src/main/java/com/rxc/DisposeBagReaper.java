@@ -0,0 +1,122 @@
+package com.rxc;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cleans dead references out of DisposeBags in the background
+ *
+ * Normally every DisposeBag owns a ReferenceQueue and drains it whenever subscriptions are added to it.
+ * DisposeBags created with a DisposeBagReaper share the reaper's ReferenceQueue instead, and never drain anything
+ * themselves, the reaper removes dead references from whichever DisposeBag they belong to.
+ *
+ * The shared reaper drains it's queue on a single daemon thread that is started the first time it is used,
+ * anything thrown while reaping goes to the RxJavaPlugins error handler and the thread carries on.
+ * Reapers created with onScheduler() drain their queue periodically on the given Scheduler
+ */
+public final class DisposeBagReaper {
+    private static final Object SHARED_LOCK = new Object();
+
+    private static DisposeBagReaper shared;
+
+    final ReferenceQueue<Subscription> referenceQueue = new ReferenceQueue<>();
+
+    private final Subscription schedule;
+
+    private DisposeBagReaper(final Subscription schedule){
+        this.schedule = schedule;
+    }
+
+    /**
+     * Returns the reaper that drains it's queue on a daemon thread shared by the whole process
+     * @return The shared reaper
+     */
+    public static DisposeBagReaper shared(){
+        synchronized (SHARED_LOCK) {
+            if (shared == null) {
+                final DisposeBagReaper reaper = new DisposeBagReaper(null);
+
+                final Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        reaper.reapForever();
+                    }
+                }, "DisposeBagReaper");
+                thread.setDaemon(true);
+                thread.start();
+
+                shared = reaper;
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * Creates a reaper that drains it's queue periodically on the given Scheduler
+     * @param scheduler The Scheduler to drain the queue on
+     * @param period How long to wait between drains
+     * @param unit The unit of the period
+     * @return The reaper
+     */
+    public static DisposeBagReaper onScheduler(final Scheduler scheduler, final long period, final TimeUnit unit){
+        final Scheduler.Worker worker = scheduler.createWorker();
+        final DisposeBagReaper reaper = new DisposeBagReaper(worker);
+        worker.schedulePeriodically(new Action0() {
+            @Override
+            public void call() {
+                reaper.drain();
+            }
+        }, period, period, unit);
+        return reaper;
+    }
+
+    /**
+     * Removes every dead reference currently waiting in the queue from the DisposeBag it belongs to
+     * @return The number of dead references that were removed
+     */
+    public int drain(){
+        int reaped = 0;
+        SlotReference deadRef = (SlotReference)referenceQueue.poll();
+        while (deadRef != null){
+            reap(deadRef);
+            reaped++;
+            deadRef = (SlotReference)referenceQueue.poll();
+        }
+        return reaped;
+    }
+
+    /**
+     * Stops a reaper created with onScheduler() from draining it's queue
+     * DisposeBags using the reaper keep working, but their dead references are no longer cleaned up until they are disposed
+     */
+    public void shutdown(){
+        if (schedule != null) {
+            schedule.unsubscribe();
+        }
+    }
+
+    private void reapForever(){
+        while (true) {
+            try {
+                reap((SlotReference)referenceQueue.remove());
+            } catch (final InterruptedException ignore) {
+                //The reaper thread lives as long as the process does
+            } catch (final RuntimeException e) {
+                // Every DisposeBag using the shared reaper relies on this thread, so one bad reference can't stop it
+                RxJavaPlugins.getInstance().getErrorHandler().handleError(e);
+            }
+        }
+    }
+
+    private static void reap(final SlotReference deadRef){
+        final SlotTable owner = deadRef.owner;
+        synchronized (owner.lock) {
+            owner.remove(deadRef);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.rxc;
+
+/**
+ * The JMX view of DisposeBagMetricsRegistry, registered with DisposeBagJmx
+ */
+public interface DisposeBagsMXBean {
+    /**
+     * @return Whether new DisposeBags keep metrics
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled Whether new DisposeBags should keep metrics
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return The number of DisposeBags that keep metrics and haven't been garbage collected
+     */
+    int getBagCount();
+
+    /**
+     * @return The number of subscriptions held by every DisposeBag that keeps metrics
+     */
+    long getLiveCount();
+
+    /**
+     * @return The number of dead references waiting to be cleaned up in every DisposeBag that keeps metrics
+     */
+    long getDeadReferenceBacklog();
+
+    /**
+     * @return The number of subscriptions ever added to DisposeBags that keep metrics
+     */
+    long getAddCount();
+
+    /**
+     * @return The number of times DisposeBags that keep metrics have been disposed
+     */
+    long getDisposeCount();
+
+    /**
+     * @return The number of unsubscribes that threw while DisposeBags were being disposed
+     */
+    long getDisposeFailureCount();
+
+    /**
+     * @return The median disposal latency in nanoseconds
+     */
+    long getDisposeLatencyP50Nanos();
+
+    /**
+     * @return The 99th percentile disposal latency in nanoseconds
+     */
+    long getDisposeLatencyP99Nanos();
+
+    /**
+     * @return The slowest disposal in nanoseconds
+     */
+    long getDisposeLatencyMaxNanos();
+
+    /**
+     * Describes the DisposeBags holding the most subscriptions, to help find DisposeBags that grow without bound
+     * @param count The number of DisposeBags to describe
+     * @return A description of each of the largest DisposeBags, largest first
+     */
+    String[] largestBags(int count);
+}
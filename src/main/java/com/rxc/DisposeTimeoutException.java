@@ -0,0 +1,51 @@
+package com.rxc;
+
+import rx.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Signalled by DisposeBag.disposeAllAsync() when some subscriptions didn't finish unsubscribing before the timeout
+ *
+ * Subscriptions that timed out are reported separately from subscriptions that threw while unsubscribing,
+ * a timed out subscription may still finish unsubscribing at some point after the exception has been signalled,
+ * if it throws when it does the error goes to the RxJavaPlugins error handler.
+ * Subscriptions aren't serializable, so a DisposeTimeoutException only keeps it's timed out subscriptions
+ * until it is serialized, the message still counts them
+ */
+public class DisposeTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<Subscription> timedOut;
+
+    private final List<Throwable> failures;
+
+    /**
+     * Creates a DisposeTimeoutException
+     * @param timedOut The subscriptions that didn't finish unsubscribing in time
+     * @param failures The errors thrown by the subscriptions that did finish
+     */
+    public DisposeTimeoutException(final Collection<? extends Subscription> timedOut, final Collection<? extends Throwable> failures){
+        super(timedOut.size() + " subscriptions did not finish unsubscribing in time"
+                + (failures.isEmpty() ? "" : ", " + failures.size() + " failed"));
+        this.timedOut = Collections.unmodifiableList(new ArrayList<Subscription>(timedOut));
+        this.failures = Collections.unmodifiableList(new ArrayList<Throwable>(failures));
+    }
+
+    /**
+     * @return The subscriptions that didn't finish unsubscribing in time, or an empty list if the exception was deserialized
+     */
+    public List<Subscription> getTimedOut(){
+        return timedOut != null ? timedOut : Collections.<Subscription>emptyList();
+    }
+
+    /**
+     * @return The errors thrown by the subscriptions that did finish unsubscribing in time
+     */
+    public List<Throwable> getFailures(){
+        return failures;
+    }
+}
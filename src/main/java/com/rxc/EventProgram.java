@@ -0,0 +1,644 @@
+package com.rxc;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Producer;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The compiled form of the events given to an UnsafeObservableBuilder
+ *
+ * Every event is an opcode in one array with whatever it operates on at the same index of a parallel operand array.
+ * Both arrays are copied out of the builder when the Observable is built and never change afterwards,
+ * so a subscription is a single pass over them in a switch, and allocates nothing of it's own.
+ * Bulk emissions are a single event that produces it's items as it runs, rather than an event per item
+ *
+ * Repeated blocks are laid out once, between a REPEAT and an END_REPEAT event that share a Block operand.
+ * END_REPEAT jumps back to the start of the block until it has run often enough, the number of runs left for every
+ * block that is running is kept on a small stack that belongs to the subscription
+ *
+ * A backpressured program instead runs as a Producer that keeps track of where it is in the program,
+ * it pauses before any onNext the Subscriber hasn't requested and picks up from there on the next request
+ *
+ * A program with a Scheduler doesn't block during sleeps, it schedules the rest of the program on a Worker of the
+ * Scheduler to run once the sleep is over, so sleeping subscriptions don't hold on to a thread
+ *
+ * A HOP event moves the rest of the program onto a Worker of it's Scheduler, the program carries on from the next
+ * event once the Worker gets to it. Every subscription creates at most one Worker per Scheduler and keeps it until the
+ * program ends, so a program that hops back and forth runs the events that belong to a Scheduler on the same thread,
+ * and sleeps after a hop are scheduled on the Worker the program hopped to
+ *
+ * A cancellable program checks whether it's Subscriber has unsubscribed before every event and every item of a bulk
+ * emission, and stops running as soon as it has. Unsubscribing also wakes up a cancellable program that is sleeping
+ *
+ * @param <T> The class for the Observable
+ */
+final class EventProgram<T> implements Observable.OnSubscribe<T> {
+    static final byte EMIT = 0;
+    static final byte ERROR = 1;
+    static final byte COMPLETE = 2;
+    static final byte SLEEP = 3;
+    static final byte NOTIFY = 4;
+    static final byte PERFORM_ACTION = 5;
+    static final byte PERFORM_RUNNABLE = 6;
+    static final byte EMIT_ALL = 7;
+    static final byte EMIT_ARRAY = 8;
+    static final byte EMIT_RANGE = 9;
+    static final byte GENERATE = 10;
+    static final byte EMIT_AT_RATE = 11;
+    static final byte REPEAT = 12;
+    static final byte END_REPEAT = 13;
+    static final byte REPLAY = 14;
+    static final byte HOP = 15;
+
+    private final byte[] opcodes;
+    private final Object[] operands;
+    private final boolean backpressured;
+    private final Scheduler scheduler;
+    private final boolean cancellable;
+    private final int maxDepth;
+    private final boolean hops;
+
+    /**
+     * Creates a program, the arrays given must not be changed afterwards
+     * @param opcodes The opcode of every event
+     * @param operands The operand of every event, at the same index as it's opcode
+     * @param backpressured True to only emit items as they are requested, false to emit them as fast as possible
+     * @param scheduler The scheduler to sleep on, or null to sleep on the thread running the program
+     * @param cancellable True to stop running the program as soon as the Subscriber unsubscribes
+     */
+    EventProgram(final byte[] opcodes, final Object[] operands, final boolean backpressured, final Scheduler scheduler,
+                 final boolean cancellable){
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.backpressured = backpressured;
+        this.scheduler = scheduler;
+        this.cancellable = cancellable;
+
+        int depth = 0;
+        int maxDepth = 0;
+        boolean hops = false;
+        for (final byte opcode : opcodes) {
+            if (opcode == REPEAT) {
+                maxDepth = Math.max(maxDepth, ++depth);
+            } else if (opcode == END_REPEAT) {
+                depth--;
+            } else if (opcode == HOP) {
+                hops = true;
+            }
+        }
+        this.maxDepth = maxDepth;
+        this.hops = hops;
+    }
+
+    @Override
+    public void call(final Subscriber<? super T> subscriber) {
+        if (backpressured) {
+            subscriber.setProducer(new ProgramRunner<>(this, subscriber));
+            return;
+        }
+
+        if (scheduler != null || cancellable || hops) {
+            new ProgramRunner<>(this, subscriber).request(Long.MAX_VALUE);
+            return;
+        }
+
+        final byte[] opcodes = this.opcodes;
+        final Object[] operands = this.operands;
+
+        final long[] remaining = maxDepth > 0 ? new long[maxDepth] : null;
+        int depth = 0;
+
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            final byte opcode = opcodes[pc];
+            if (opcode == REPEAT) {
+                final Block block = (Block) operands[pc];
+                if (block.times == 0) {
+                    pc += block.length + 1;
+                } else {
+                    remaining[depth++] = block.times;
+                }
+            } else if (opcode == END_REPEAT) {
+                final Block block = (Block) operands[pc];
+                if (block.times < 0 ? !subscriber.isUnsubscribed() : --remaining[depth - 1] > 0) {
+                    pc -= block.length + 1;
+                } else {
+                    depth--;
+                }
+            } else {
+                execute(opcode, operands[pc], subscriber);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void execute(final byte opcode, final Object operand, final Subscriber<? super T> subscriber){
+        switch (opcode) {
+            case EMIT:
+                subscriber.onNext((T) operand);
+                break;
+            case ERROR:
+                subscriber.onError((Throwable) operand);
+                break;
+            case COMPLETE:
+                subscriber.onCompleted();
+                break;
+            case SLEEP:
+                try {
+                    Thread.sleep((Long) operand);
+                } catch (final InterruptedException e) {
+                    subscriber.onError(e);
+                }
+                break;
+            case NOTIFY:
+                ((Notification<T>) operand).accept(subscriber);
+                break;
+            case PERFORM_ACTION:
+                ((Action1<Subscriber<? super T>>) operand).call(subscriber);
+                break;
+            case PERFORM_RUNNABLE:
+                ((Runnable) operand).run();
+                break;
+            case EMIT_ALL:
+                for (final Object item : (Iterable<?>) operand) {
+                    subscriber.onNext((T) item);
+                }
+                break;
+            case EMIT_ARRAY:
+                for (final Object item : (Object[]) operand) {
+                    subscriber.onNext((T) item);
+                }
+                break;
+            case EMIT_RANGE:
+                final Range<T> range = (Range<T>) operand;
+                for (int i = 0; i < range.count; i++) {
+                    subscriber.onNext(range.mapper.call(range.start + i));
+                }
+                break;
+            case GENERATE:
+                final Generator<T> generator = (Generator<T>) operand;
+                for (long i = 0; i < generator.count; i++) {
+                    subscriber.onNext(generator.generator.call());
+                }
+                break;
+            case EMIT_AT_RATE:
+                final LoadGenerator.Run<T> run = ((LoadGenerator<T>) operand).start(System.nanoTime());
+                while (run.hasNext()) {
+                    LoadGenerator.waitUntil(run.nextDue(), null);
+                    subscriber.onNext(run.next(System.nanoTime()));
+                }
+                run.finish();
+                break;
+            case REPLAY:
+                final Recording.Playback<T> playback = ((Recording<T>) operand).start(System.nanoTime());
+                while (playback.hasNext()) {
+                    LoadGenerator.waitUntil(playback.nextDue(), null);
+                    playback.next().accept(subscriber);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown opcode " + opcode);
+        }
+    }
+
+    private static boolean isBulk(final byte opcode){
+        return (opcode >= EMIT_ALL && opcode <= EMIT_AT_RATE) || opcode == REPLAY;
+    }
+
+    private static boolean emits(final byte opcode, final Object operand){
+        return opcode == EMIT || (opcode == NOTIFY && ((Notification<?>) operand).isOnNext());
+    }
+
+    /**
+     * The operand of both the REPEAT and END_REPEAT events around a repeated block
+     */
+    static final class Block {
+        private final long times;
+        private final int length;
+
+        /**
+         * Creates a Block
+         * @param times The number of times to run the block, or -1 to run it until the Subscriber unsubscribes
+         * @param length The number of events in the block, not counting the REPEAT and END_REPEAT events
+         */
+        Block(final long times, final int length){
+            this.times = times;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The operand of an EMIT_RANGE event
+     */
+    static final class Range<T> {
+        private final int start;
+        private final int count;
+        private final Func1<Integer, ? extends T> mapper;
+
+        Range(final int start, final int count, final Func1<Integer, ? extends T> mapper){
+            this.start = start;
+            this.count = count;
+            this.mapper = mapper;
+        }
+    }
+
+    /**
+     * The operand of a GENERATE event
+     */
+    static final class Generator<T> {
+        private final long count;
+        private final Func0<? extends T> generator;
+
+        Generator(final long count, final Func0<? extends T> generator){
+            this.count = count;
+            this.generator = generator;
+        }
+    }
+
+    /**
+     * Runs a program for a single Subscriber one stretch at a time, remembering where it is in between
+     * The program stops before any onNext the Subscriber hasn't requested, at sleeps when there is a Scheduler
+     * to sleep on, and at hops, and carries on from there when more items are requested, the sleep is over
+     * or the Worker it hopped to gets to it.
+     * Whichever thread gets the program going again runs it, anything that would get it going while it is already
+     * running is picked up by the thread that is already running it. Once the program has hopped,
+     * requests get it going again on the Worker it hopped to rather than on the requesting thread
+     */
+    private static final class ProgramRunner<T> implements Producer, Action0 {
+        private static final long CLOCK_RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private final EventProgram<T> program;
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final long[] remaining;
+
+        private volatile boolean sleeping;
+        private volatile Thread sleeper;
+        private volatile Scheduler.Worker worker;
+        private volatile boolean hopped;
+        private Map<Scheduler, Scheduler.Worker> workers;
+
+        private int pc;
+        private long index;
+        private Iterator<?> iterator;
+        private LoadGenerator.Run<T> run;
+        private Recording.Playback<T> playback;
+        private int depth;
+
+        ProgramRunner(final EventProgram<T> program, final Subscriber<? super T> subscriber){
+            this.program = program;
+            this.subscriber = subscriber;
+            this.remaining = program.maxDepth > 0 ? new long[program.maxDepth] : null;
+
+            if (program.scheduler != null) {
+                worker = workerFor(program.scheduler);
+            }
+
+            if (program.cancellable && worker == null) {
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        final Thread thread = sleeper;
+                        if (thread != null) {
+                            LockSupport.unpark(thread);
+                        }
+                    }
+                }));
+            }
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("n must not be negative");
+            }
+            if (n == 0) {
+                return;
+            }
+
+            while (true) {
+                final long current = requested.get();
+                final long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                if (requested.compareAndSet(current, next)) {
+                    break;
+                }
+            }
+
+            final Scheduler.Worker worker = this.worker;
+            if (hopped && worker != null) {
+                worker.schedule(new Action0() {
+                    @Override
+                    public void call() {
+                        drain();
+                    }
+                });
+                return;
+            }
+
+            drain();
+        }
+
+        /**
+         * Wakes the program up at the end of a sleep or a hop
+         */
+        @Override
+        public void call() {
+            sleeping = false;
+            drain();
+        }
+
+        /**
+         * Emits items from the bulk emission at pc until it either runs out of items or out of requested items,
+         * moving on to the next event only if it ran out of items
+         * @return The number of items emitted so far in this stretch
+         */
+        @SuppressWarnings("unchecked")
+        private long emitBulk(final byte opcode, final Object operand, long emitted, final long demand){
+            switch (opcode) {
+                case EMIT_ALL:
+                    if (iterator == null) {
+                        iterator = ((Iterable<?>) operand).iterator();
+                    }
+                    while (iterator.hasNext()) {
+                        if (emitted == demand || cancelled()) {
+                            return emitted;
+                        }
+                        emitted++;
+                        subscriber.onNext((T) iterator.next());
+                    }
+                    iterator = null;
+                    break;
+                case EMIT_ARRAY:
+                    final Object[] items = (Object[]) operand;
+                    while (index < items.length) {
+                        if (emitted == demand || cancelled()) {
+                            return emitted;
+                        }
+                        emitted++;
+                        subscriber.onNext((T) items[(int) index++]);
+                    }
+                    break;
+                case EMIT_RANGE:
+                    final Range<T> range = (Range<T>) operand;
+                    while (index < range.count) {
+                        if (emitted == demand || cancelled()) {
+                            return emitted;
+                        }
+                        emitted++;
+                        subscriber.onNext(range.mapper.call(range.start + (int) index++));
+                    }
+                    break;
+                case GENERATE:
+                    final Generator<T> generator = (Generator<T>) operand;
+                    while (index < generator.count) {
+                        if (emitted == demand || cancelled()) {
+                            return emitted;
+                        }
+                        emitted++;
+                        index++;
+                        subscriber.onNext(generator.generator.call());
+                    }
+                    break;
+                case EMIT_AT_RATE:
+                    if (run == null) {
+                        run = ((LoadGenerator<T>) operand).start(now());
+                    }
+                    while (run.hasNext()) {
+                        if (emitted == demand || cancelled()) {
+                            return emitted;
+                        }
+
+                        final long wait = run.nextDue() - now();
+                        if (worker != null && wait >= CLOCK_RESOLUTION_NANOS) {
+                            sleeping = true;
+                            worker.schedule(this, wait, TimeUnit.NANOSECONDS);
+                            return emitted;
+                        }
+                        if (worker == null && wait > 0) {
+                            waitUntil(run.nextDue());
+                            if (cancelled()) {
+                                return emitted;
+                            }
+                        }
+
+                        emitted++;
+                        subscriber.onNext(run.next(now()));
+                    }
+                    run.finish();
+                    run = null;
+                    break;
+                case REPLAY:
+                    if (playback == null) {
+                        playback = ((Recording<T>) operand).start(now());
+                    }
+                    while (playback.hasNext()) {
+                        if ((playback.nextIsItem() && emitted == demand) || cancelled()) {
+                            return emitted;
+                        }
+
+                        final long wait = playback.nextDue() - now();
+                        if (worker != null && wait >= CLOCK_RESOLUTION_NANOS) {
+                            sleeping = true;
+                            worker.schedule(this, wait, TimeUnit.NANOSECONDS);
+                            return emitted;
+                        }
+                        if (worker == null && wait > 0) {
+                            waitUntil(playback.nextDue());
+                            if (cancelled()) {
+                                return emitted;
+                            }
+                        }
+
+                        if (playback.nextIsItem()) {
+                            emitted++;
+                        }
+                        playback.next().accept(subscriber);
+                    }
+                    playback = null;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + opcode);
+            }
+
+            index = 0;
+            pc++;
+            return emitted;
+        }
+
+        /**
+         * Moves pc past the start or end of a repeated block, back to it's start if it has to run again
+         */
+        private void jump(final byte opcode, final Block block){
+            if (opcode == REPEAT) {
+                if (block.times == 0) {
+                    pc += block.length + 2;
+                    return;
+                }
+                remaining[depth++] = block.times;
+            } else if (block.times < 0 ? !subscriber.isUnsubscribed() : --remaining[depth - 1] > 0) {
+                pc -= block.length;
+                return;
+            } else {
+                depth--;
+            }
+            pc++;
+        }
+
+        /**
+         * Returns the Worker of the given Scheduler for this subscription, creating it the first time
+         * @param scheduler The scheduler
+         * @return The Worker
+         */
+        private Scheduler.Worker workerFor(final Scheduler scheduler){
+            if (workers == null) {
+                workers = new IdentityHashMap<>();
+            }
+
+            Scheduler.Worker worker = workers.get(scheduler);
+            if (worker == null) {
+                worker = scheduler.createWorker();
+                subscriber.add(worker);
+                workers.put(scheduler, worker);
+            }
+            return worker;
+        }
+
+        /**
+         * @return True if the program is cancellable and the Subscriber has unsubscribed
+         */
+        private boolean cancelled(){
+            return program.cancellable && subscriber.isUnsubscribed();
+        }
+
+        /**
+         * Blocks the running thread for the given time, or until the Subscriber unsubscribes
+         * @param mills How long to sleep in milliseconds
+         */
+        private void sleep(final long mills){
+            waitUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(mills));
+            if (Thread.interrupted()) {
+                subscriber.onError(new InterruptedException());
+            }
+        }
+
+        /**
+         * Blocks the running thread until the given time, or until the Subscriber unsubscribes if the program is cancellable
+         * @param deadline The System.nanoTime() to wait until
+         */
+        private void waitUntil(final long deadline){
+            if (!program.cancellable) {
+                LoadGenerator.waitUntil(deadline, null);
+                return;
+            }
+
+            sleeper = Thread.currentThread();
+            try {
+                LoadGenerator.waitUntil(deadline, subscriber);
+            } finally {
+                sleeper = null;
+            }
+        }
+
+        /**
+         * @return The current time in nanoseconds, on the Scheduler's clock if there is one
+         */
+        private long now(){
+            return worker != null ? TimeUnit.MILLISECONDS.toNanos(worker.now()) : System.nanoTime();
+        }
+
+        private void drain(){
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            final byte[] opcodes = program.opcodes;
+            final Object[] operands = program.operands;
+
+            Scheduler.Worker hop = null;
+            int missed = 1;
+            while (true) {
+                final long demand = requested.get();
+                long emitted = 0;
+
+                while (!sleeping && pc < opcodes.length) {
+                    if (cancelled()) {
+                        pc = opcodes.length;
+                        break;
+                    }
+
+                    final byte opcode = opcodes[pc];
+                    final Object operand = operands[pc];
+                    if (opcode == REPEAT || opcode == END_REPEAT) {
+                        jump(opcode, (Block) operand);
+                        continue;
+                    }
+
+                    if (isBulk(opcode)) {
+                        final int at = pc;
+                        emitted = emitBulk(opcode, operand, emitted, demand);
+                        if (pc == at) {
+                            break;
+                        }
+                        continue;
+                    }
+
+                    if (emits(opcode, operand)) {
+                        if (emitted == demand) {
+                            break;
+                        }
+                        emitted++;
+                    }
+
+                    pc++;
+                    if (opcode == SLEEP && worker != null) {
+                        sleeping = true;
+                        worker.schedule(this, (Long) operand, TimeUnit.MILLISECONDS);
+                    } else if (opcode == HOP) {
+                        sleeping = true;
+                        hop = workerFor((Scheduler) operand);
+                        worker = hop;
+                        hopped = true;
+                    } else if (opcode == SLEEP && program.cancellable) {
+                        sleep((Long) operand);
+                    } else {
+                        execute(opcode, operand, subscriber);
+                    }
+                }
+
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+
+                if (pc == opcodes.length && !sleeping && workers != null) {
+                    for (final Scheduler.Worker worker : workers.values()) {
+                        worker.unsubscribe();
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    if (hop != null) {
+                        // Only handed over once this thread is done, so the rest of the program runs on the hop's Worker
+                        hop.schedule(this);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
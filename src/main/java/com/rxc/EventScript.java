@@ -0,0 +1,209 @@
+package com.rxc;
+
+import rx.Observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sequence of emits, sleeps and terminal events made by a ScriptGenerator, that can be turned into an Observable
+ *
+ * A script is valid if it ends with it's only terminal event, the way ObservableBuilder scripts do,
+ * anything else breaks the Observable contract and can only be performed through an UnsafeObservableBuilder.
+ * EventScript is immutable, and prints as the builder calls that reproduce it, as long as it's items are strings,
+ * characters, numbers, booleans or null. Other items print through their own toString()
+ *
+ * @param <T> The class for the items
+ */
+public final class EventScript<T> {
+    private final List<Step> steps;
+
+    EventScript(final List<Step> steps){
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * @return The number of events in the script
+     */
+    public int size(){
+        return steps.size();
+    }
+
+    /**
+     * @return True if the script ends with it's only terminal event
+     */
+    public boolean isValid(){
+        for (int i = 0; i < steps.size(); i++) {
+            if (steps.get(i).isTerminal() != (i == steps.size() - 1)) {
+                return false;
+            }
+        }
+        return !steps.isEmpty();
+    }
+
+    /**
+     * Creates a builder holding all the events of the script, that can be given more events or settings
+     * @return The builder
+     */
+    @SuppressWarnings("unchecked")
+    public UnsafeObservableBuilder<T> toBuilder(){
+        final UnsafeObservableBuilder<T> builder = new UnsafeObservableBuilder<>();
+        for (final Step step : steps) {
+            switch (step.opcode) {
+                case EventProgram.EMIT:
+                    builder.emit((T) step.value);
+                    break;
+                case EventProgram.SLEEP:
+                    builder.sleep((Long) step.value);
+                    break;
+                case EventProgram.ERROR:
+                    builder.error((Throwable) step.value);
+                    break;
+                default:
+                    builder.complete();
+                    break;
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Builds an Observable that performs all the events of the script
+     * @return The Observable
+     */
+    public Observable<T> toObservable(){
+        return toBuilder().build();
+    }
+
+    /**
+     * @return The events of the script, for ScriptGenerator to shrink
+     */
+    List<Step> getSteps(){
+        return steps;
+    }
+
+    /**
+     * Creates a script made up of some of the events of this one
+     * @param from The index of the first event to leave out
+     * @param to The index after the last event to leave out
+     * @return The script without the events between from and to
+     */
+    EventScript<T> without(final int from, final int to){
+        final List<Step> steps = new ArrayList<>(this.steps.size() - (to - from));
+        steps.addAll(this.steps.subList(0, from));
+        steps.addAll(this.steps.subList(to, this.steps.size()));
+        return new EventScript<>(steps);
+    }
+
+    /**
+     * Creates a script with one of the events of this one replaced
+     * @param index The index of the event to replace
+     * @param step The event to replace it with
+     * @return The script with the event replaced
+     */
+    EventScript<T> with(final int index, final Step step){
+        final List<Step> steps = new ArrayList<>(this.steps);
+        steps.set(index, step);
+        return new EventScript<>(steps);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("new UnsafeObservableBuilder<>()");
+        for (final Step step : steps) {
+            builder.append('.').append(step);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A single event of a script
+     */
+    static final class Step {
+        private final byte opcode;
+        private final Object value;
+
+        /**
+         * Creates a Step
+         * @param opcode The EventProgram opcode of the event, EMIT, SLEEP, ERROR or COMPLETE
+         * @param value The item, the sleep in milliseconds, the error or null for completion
+         */
+        Step(final byte opcode, final Object value){
+            this.opcode = opcode;
+            this.value = value;
+        }
+
+        byte getOpcode(){
+            return opcode;
+        }
+
+        Object getValue(){
+            return value;
+        }
+
+        boolean isTerminal(){
+            return opcode == EventProgram.ERROR || opcode == EventProgram.COMPLETE;
+        }
+
+        @Override
+        public String toString() {
+            switch (opcode) {
+                case EventProgram.EMIT:
+                    return "emit(" + literal(value) + ")";
+                case EventProgram.SLEEP:
+                    return "sleep(" + value + ")";
+                case EventProgram.ERROR:
+                    return "error(new " + value.getClass().getSimpleName() + "())";
+                default:
+                    return "complete()";
+            }
+        }
+
+        /**
+         * @return The java source for an item, so a printed script can be pasted back into a test
+         */
+        private static String literal(final Object value){
+            if (value instanceof String) {
+                return '"' + escape((String) value, '"') + '"';
+            }
+            if (value instanceof Character) {
+                return "'" + escape(value.toString(), '\'') + "'";
+            }
+            if (value instanceof Long) {
+                return value + "L";
+            }
+            if (value instanceof Float) {
+                return value + "f";
+            }
+            if (value instanceof Byte) {
+                return "(byte) " + value;
+            }
+            if (value instanceof Short) {
+                return "(short) " + value;
+            }
+            return String.valueOf(value);
+        }
+
+        private static String escape(final String value, final char quote){
+            final StringBuilder builder = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == quote || c == '\\') {
+                    builder.append('\\').append(c);
+                } else if (c == '\n') {
+                    builder.append("\\n");
+                } else if (c == '\r') {
+                    builder.append("\\r");
+                } else if (c == '\t') {
+                    builder.append("\\t");
+                } else if (c < 0x20 || c > 0x7E) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
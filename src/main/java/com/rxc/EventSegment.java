@@ -0,0 +1,68 @@
+package com.rxc;
+
+import java.util.Arrays;
+
+/**
+ * A run of events in the script of an UnsafeObservableBuilder
+ *
+ * A script is a chain of segments, every segment continues from some number of events of the segment before it.
+ * Segments are append only and every index is written at most once, so forked builders can keep sharing the events
+ * they have in common. The first builder to append past the end of a segment grows it, any other builder
+ * that wants to append at an index that's already taken starts a new segment continuing from it instead
+ */
+final class EventSegment {
+    private static final int INITIAL_CAPACITY = 16;
+
+    final EventSegment parent;
+
+    final int parentLength;
+
+    private byte[] opcodes = new byte[INITIAL_CAPACITY];
+    private Object[] operands = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Creates a segment
+     * @param parent The segment this one continues from, or null if it's the start of a script
+     * @param parentLength The number of the parent's events that come before this segment
+     */
+    EventSegment(final EventSegment parent, final int parentLength){
+        this.parent = parent;
+        this.parentLength = parentLength;
+    }
+
+    /**
+     * Appends an event to the segment, as long as no other script has appended at the same index already
+     * @param at The index to append at
+     * @param opcode The opcode of the event
+     * @param operand The operand of the event
+     * @return True if the event was appended, false if the index has already been taken
+     */
+    synchronized boolean append(final int at, final byte opcode, final Object operand){
+        if (at != size) {
+            return false;
+        }
+
+        if (size == opcodes.length) {
+            opcodes = Arrays.copyOf(opcodes, size * 2);
+            operands = Arrays.copyOf(operands, size * 2);
+        }
+
+        opcodes[size] = opcode;
+        operands[size] = operand;
+        size++;
+        return true;
+    }
+
+    /**
+     * Copies the first events of the segment into a pair of arrays
+     * @param count The number of events to copy
+     * @param opcodes The array to copy the opcodes into
+     * @param operands The array to copy the operands into
+     * @param at The index to start copying into
+     */
+    synchronized void copyTo(final int count, final byte[] opcodes, final Object[] operands, final int at){
+        System.arraycopy(this.opcodes, 0, opcodes, at, count);
+        System.arraycopy(this.operands, 0, operands, at, count);
+    }
+}
@@ -0,0 +1,27 @@
+package com.rxc;
+
+import java.io.IOException;
+
+/**
+ * Turns the items of an Observable into bytes and back, so they can be written into a Recording
+ *
+ * @param <T> The class for the items
+ */
+public interface ItemSerializer<T> {
+
+    /**
+     * Turns an item into bytes
+     * @param item The item
+     * @return The bytes holding the item
+     * @throws IOException If the item can't be serialized
+     */
+    byte[] serialize(T item) throws IOException;
+
+    /**
+     * Turns bytes written by serialize() back into an item
+     * @param bytes The bytes holding the item
+     * @return The item
+     * @throws IOException If the bytes can't be deserialized
+     */
+    T deserialize(byte[] bytes) throws IOException;
+}
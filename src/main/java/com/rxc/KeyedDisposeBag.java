@@ -0,0 +1,166 @@
+package com.rxc;
+
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A DisposeBag that files every subscription under a key, so the subscriptions for a single key can be disposed
+ * without touching the rest
+ *
+ * Disposing a key only costs as much as the number of subscriptions filed under that key, no matter how many
+ * other keys and subscriptions the KeyedDisposeBag holds. Just like DisposeBag, KeyedDisposeBag is still fully usable
+ * after disposing, weakly references subscriptions unless told otherwise, and cleans up dead references
+ * whenever subscriptions are added. Keys that no longer have any subscriptions are forgotten
+ *
+ * @param <K> The class for the keys
+ */
+public class KeyedDisposeBag<K> {
+    private final Object lock = new Object();
+
+    private final Map<K, SlotTable> subscriptions = new HashMap<>();
+
+    private final ReferenceQueue<Subscription> referenceQueue = new ReferenceQueue<>();
+
+    private final ReferencePolicy referencePolicy;
+
+    /**
+     * Creates a KeyedDisposeBag that weakly references it's subscriptions
+     */
+    public KeyedDisposeBag(){
+        this(ReferencePolicy.WEAK);
+    }
+
+    /**
+     * Creates a KeyedDisposeBag
+     * @param referencePolicy How the KeyedDisposeBag holds on to the subscriptions added to it
+     */
+    public KeyedDisposeBag(final ReferencePolicy referencePolicy){
+        this.referencePolicy = referencePolicy;
+    }
+
+    /**
+     * Adds a subscription to the KeyedDisposeBag
+     * @param key The key to file the subscription under
+     * @param subscription The subscription to add
+     */
+    public void add(final K key, final Subscription subscription){
+        synchronized (lock) {
+            cleanupReferences();
+            final SlotTable table = tableFor(key);
+            table.add(reference(subscription, table));
+        }
+    }
+
+    /**
+     * Adds a collection of subscriptions to the KeyedDisposeBag
+     * @param key The key to file the subscriptions under
+     * @param subscriptions The subscriptions to add
+     */
+    public void addAll(final K key, final Iterable<Subscription> subscriptions){
+        synchronized (lock) {
+            cleanupReferences();
+            final SlotTable table = tableFor(key);
+            for (final Subscription subscription : subscriptions) {
+                table.add(reference(subscription, table));
+            }
+        }
+    }
+
+    /**
+     * Unsubscribes all subscribers added under the given key that are still subscribed and haven't been garbage collected
+     *
+     * An attempt to unsubscribe is made on every subscription under the key, even if a subscription throws
+     * If any subscriptions do throw they are removed from the dispose bag and a Composite exception is thrown
+     * that contains all throws at the end of the disposal process
+     * @param key The key to dispose
+     */
+    public void dispose(final K key){
+        final List<Throwable> errors = new LinkedList<>();
+        synchronized (lock) {
+            cleanupReferences();
+            final SlotTable table = subscriptions.remove(key);
+            if (table != null) {
+                table.disposeAll(errors);
+            }
+
+            Exceptions.throwIfAny(errors);
+        }
+    }
+
+    /**
+     * Unsubscribes all added subscribers, under every key, that are still subscribed and haven't been garbage collected
+     * The KeyedDisposeBag is still usable after this method is called
+     *
+     * An attempt to unsubscribe is made on every subscription in the KeyedDisposeBag, even if a subscription throws
+     * If any subscriptions do throw they are removed from the dispose bag and a Composite exception is thrown
+     * that contains all throws at the end of the disposal process
+     */
+    public void disposeAll(){
+        final List<Throwable> errors = new LinkedList<>();
+        synchronized (lock) {
+            cleanupReferences();
+            // Every table is taken out before anything is unsubscribed, so a subscription added from inside
+            // an unsubscribe() lands in a fresh table and is kept for the next disposal
+            final SlotTable[] tables = subscriptions.values().toArray(new SlotTable[subscriptions.size()]);
+            subscriptions.clear();
+            for (final SlotTable table : tables) {
+                table.disposeAll(errors);
+            }
+
+            Exceptions.throwIfAny(errors);
+        }
+    }
+
+    /**
+     * @param key The key to count subscriptions for
+     * @return The number of subscriptions currently filed under the key, including ones that are waiting to be cleaned up
+     */
+    int size(final K key){
+        synchronized (lock) {
+            final SlotTable table = subscriptions.get(key);
+            return table != null ? table.size() : 0;
+        }
+    }
+
+    /**
+     * @return The number of keys that currently have subscriptions filed under them
+     */
+    int keyCount(){
+        synchronized (lock) {
+            return subscriptions.size();
+        }
+    }
+
+    private SlotTable tableFor(final K key){
+        SlotTable table = subscriptions.get(key);
+        if (table == null) {
+            table = new SlotTable(lock, key);
+            subscriptions.put(key, table);
+        }
+        return table;
+    }
+
+    private SlotReference reference(final Subscription subscription, final SlotTable table){
+        if (referencePolicy == ReferencePolicy.STRONG) {
+            return SlotReference.strong(subscription, table);
+        }
+        return new SlotReference(subscription, referenceQueue, table);
+    }
+
+    private void cleanupReferences(){
+        SlotReference deadRef = (SlotReference)referenceQueue.poll();
+        while (deadRef != null){
+            final SlotTable table = deadRef.owner;
+            if (table.remove(deadRef) && table.size() == 0 && subscriptions.get(table.key) == table) {
+                subscriptions.remove(table.key);
+            }
+            deadRef = (SlotReference)referenceQueue.poll();
+        }
+    }
+}
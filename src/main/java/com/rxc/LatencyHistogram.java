@@ -0,0 +1,107 @@
+package com.rxc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies in nanoseconds
+ *
+ * Latencies are counted in power of two buckets, so recording is a couple of atomic increments and percentiles
+ * are accurate to within a factor of two, which is plenty to tell a slow teardown from a fast one
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(final long nanos){
+        buckets.incrementAndGet(bucketFor(nanos));
+        count.incrementAndGet();
+
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return The number of latencies recorded
+     */
+    public long getCount(){
+        return count.get();
+    }
+
+    /**
+     * @return The largest latency recorded in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getMaxNanos(){
+        return max.get();
+    }
+
+    /**
+     * Returns an upper bound for the given percentile of the recorded latencies
+     * @param percentile The percentile, between 0 and 100
+     * @return The upper bound in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentileNanos(final double percentile){
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+
+        long total = 0;
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Adds every latency recorded in this histogram to another histogram
+     * @param other The histogram to add to
+     */
+    void addTo(final LatencyHistogram other){
+        for (int i = 0; i < BUCKETS; i++) {
+            final long bucket = buckets.get(i);
+            if (bucket != 0) {
+                other.buckets.addAndGet(i, bucket);
+            }
+        }
+        other.count.addAndGet(count.get());
+
+        final long nanos = max.get();
+        long currentMax = other.max.get();
+        while (nanos > currentMax && !other.max.compareAndSet(currentMax, nanos)) {
+            currentMax = other.max.get();
+        }
+    }
+
+    private static int bucketFor(final long nanos){
+        return nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+    }
+
+    private static long upperBound(final int bucket){
+        return bucket == 0 ? 0 : bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
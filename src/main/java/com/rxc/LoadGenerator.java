@@ -0,0 +1,208 @@
+package com.rxc;
+
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Describes a stream of items emitted at a steady rate, for use with ObservableBuilder.emitAtRate()
+ *
+ * Every item is due at a fixed point in time measured from when the emission starts, rather than from the previous
+ * item, so a late item doesn't push back the ones after it and the rate doesn't drift. Items can be grouped into bursts
+ * that are emitted back to back, and every burst can be moved randomly around it's due time by some jitter.
+ * The emission ends as soon as the last item has been emitted, and reports the rate it actually achieved,
+ * measured up to that last item
+ *
+ * LoadGenerator is immutable, every with method returns a new LoadGenerator
+ *
+ * @param <T> The class for the items
+ */
+public final class LoadGenerator<T> {
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Func0<? extends T> supplier;
+    private final double eventsPerSecond;
+    private final long count;
+    private final double jitter;
+    private final int burstSize;
+    private final boolean seeded;
+    private final long seed;
+    private final Action1<? super LoadReport> reporter;
+
+    /**
+     * Creates a LoadGenerator
+     * @param supplier The function that creates each item
+     * @param eventsPerSecond How many items to emit per second
+     * @param count The number of items to emit
+     */
+    public LoadGenerator(final Func0<? extends T> supplier, final double eventsPerSecond, final long count){
+        this(supplier, eventsPerSecond, count, 0, 1, false, 0, null);
+    }
+
+    private LoadGenerator(final Func0<? extends T> supplier, final double eventsPerSecond, final long count,
+                          final double jitter, final int burstSize, final boolean seeded, final long seed,
+                          final Action1<? super LoadReport> reporter){
+        if (!(eventsPerSecond > 0)) {
+            throw new IllegalArgumentException("eventsPerSecond must be positive");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+        }
+        if (burstSize <= 0) {
+            throw new IllegalArgumentException("burstSize must be positive");
+        }
+
+        this.supplier = supplier;
+        this.eventsPerSecond = eventsPerSecond;
+        this.count = count;
+        this.jitter = jitter;
+        this.burstSize = burstSize;
+        this.seeded = seeded;
+        this.seed = seed;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Returns a LoadGenerator that moves every burst randomly around it's due time
+     * @param jitter How far a burst may move, as a fraction of the time between bursts from 0 to 1
+     * @return The LoadGenerator
+     */
+    public LoadGenerator<T> withJitter(final double jitter){
+        return new LoadGenerator<T>(supplier, eventsPerSecond, count, jitter, burstSize, seeded, seed, reporter);
+    }
+
+    /**
+     * Returns a LoadGenerator that emits it's items in bursts, the bursts are spaced out so the overall rate stays the same
+     * @param burstSize The number of items emitted back to back in every burst
+     * @return The LoadGenerator
+     */
+    public LoadGenerator<T> withBursts(final int burstSize){
+        return new LoadGenerator<T>(supplier, eventsPerSecond, count, jitter, burstSize, seeded, seed, reporter);
+    }
+
+    /**
+     * Returns a LoadGenerator that seeds it's jitter with the given seed, so every emission jitters the same way
+     * @param seed The seed
+     * @return The LoadGenerator
+     */
+    public LoadGenerator<T> withSeed(final long seed){
+        return new LoadGenerator<T>(supplier, eventsPerSecond, count, jitter, burstSize, true, seed, reporter);
+    }
+
+    /**
+     * Returns a LoadGenerator that reports how every emission went once it is done
+     * @param reporter The action that is given the report of every emission
+     * @return The LoadGenerator
+     */
+    public LoadGenerator<T> withReporter(final Action1<? super LoadReport> reporter){
+        return new LoadGenerator<T>(supplier, eventsPerSecond, count, jitter, burstSize, seeded, seed, reporter);
+    }
+
+    /**
+     * Starts an emission of the LoadGenerator's items
+     * @param now The time the emission starts at, in nanoseconds
+     * @return The emission
+     */
+    Run<T> start(final long now){
+        return new Run<>(this, now);
+    }
+
+    /**
+     * Blocks the calling thread until the given time, parking while it's far off and spinning once it's close
+     * Returns early if the thread is interrupted, or the given Subscription is unsubscribed
+     * @param deadline The System.nanoTime() to wait until
+     * @param subscription The subscription that cuts the wait short when it is unsubscribed, or null
+     */
+    static void waitUntil(final long deadline, final Subscription subscription){
+        while (true) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()
+                    || (subscription != null && subscription.isUnsubscribed())) {
+                return;
+            }
+
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * A single emission of a LoadGenerator's items
+     */
+    static final class Run<T> {
+        private final LoadGenerator<T> generator;
+        private final double nanosPerEvent;
+        private final long start;
+        private final Random random;
+
+        private long emitted;
+        private long burstDue;
+        private long lastEmission;
+        private long maxLagNanos;
+
+        private Run(final LoadGenerator<T> generator, final long start){
+            this.generator = generator;
+            this.nanosPerEvent = TimeUnit.SECONDS.toNanos(1) / generator.eventsPerSecond;
+            this.start = start;
+            this.random = generator.seeded ? new Random(generator.seed) : new Random();
+            this.burstDue = dueAt(0);
+            this.lastEmission = start;
+        }
+
+        /**
+         * @return True if there are items left to emit
+         */
+        boolean hasNext(){
+            return emitted < generator.count;
+        }
+
+        /**
+         * @return The time the next item is due at in nanoseconds
+         */
+        long nextDue(){
+            return burstDue;
+        }
+
+        /**
+         * Creates the next item
+         * @param now The time the item is emitted at, in nanoseconds
+         * @return The item
+         */
+        T next(final long now){
+            maxLagNanos = Math.max(maxLagNanos, now - burstDue);
+            lastEmission = now;
+            emitted++;
+            if (emitted % generator.burstSize == 0) {
+                burstDue = dueAt(emitted);
+            }
+            return generator.supplier.call();
+        }
+
+        /**
+         * Reports how the emission went, measured up to the last item
+         */
+        void finish(){
+            if (generator.reporter != null) {
+                generator.reporter.call(new LoadReport(emitted, lastEmission - start, generator.eventsPerSecond, maxLagNanos));
+            }
+        }
+
+        private long dueAt(final long item){
+            long due = start + (long) (item * nanosPerEvent);
+            if (generator.jitter > 0) {
+                due += (long) ((random.nextDouble() * 2 - 1) * generator.jitter * generator.burstSize * nanosPerEvent);
+            }
+            return Math.max(start, due);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.rxc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a single emission of a LoadGenerator went
+ */
+public final class LoadReport {
+    private final long emitted;
+    private final long elapsedNanos;
+    private final double targetRate;
+    private final long maxLagNanos;
+
+    /**
+     * Creates a LoadReport
+     * @param emitted The number of items emitted
+     * @param elapsedNanos How long the emission took in nanoseconds, up to the last item
+     * @param targetRate The rate the emission was aiming for, in items per second
+     * @param maxLagNanos How late the latest item was in nanoseconds
+     */
+    public LoadReport(final long emitted, final long elapsedNanos, final double targetRate, final long maxLagNanos){
+        this.emitted = emitted;
+        this.elapsedNanos = elapsedNanos;
+        this.targetRate = targetRate;
+        this.maxLagNanos = maxLagNanos;
+    }
+
+    /**
+     * @return The number of items emitted
+     */
+    public long getEmitted(){
+        return emitted;
+    }
+
+    /**
+     * @return How long the emission took in nanoseconds, from when it started until the last item was emitted
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The rate the emission was aiming for, in items per second
+     */
+    public double getTargetRate(){
+        return targetRate;
+    }
+
+    /**
+     * The last item ends the emission rather than taking up a period of it's own, so emissions of only a few items,
+     * or of large bursts, read above their target even when every item was on time
+     * @return The rate the emission achieved, in items per second
+     */
+    public double getAchievedRate(){
+        if (elapsedNanos <= 0) {
+            return emitted > 0 ? Double.POSITIVE_INFINITY : 0;
+        }
+        return emitted * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @return How late the latest item was in nanoseconds, items are late when whatever they are emitted to can't keep up
+     */
+    public long getMaxLagNanos(){
+        return maxLagNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadReport{emitted=" + emitted
+                + ", elapsedNanos=" + elapsedNanos
+                + ", targetRate=" + targetRate
+                + ", achievedRate=" + getAchievedRate()
+                + ", maxLagNanos=" + maxLagNanos + "}";
+    }
+}
@@ -1,19 +1,36 @@
 package com.rxc;
 
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
 import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
 
 /**
  * A builder to build up an Observable that performs a set of events on it's Subscribers
  * This is the unsafe builder, meant for testing odd circumstances and working with Observables
  * that don't follow the strict contract. All events given to the builder will be performed on the Subscriber
  *
+ * Observables built by ObservableBuilder stop as soon as their Subscriber unsubscribes, including in the middle
+ * of a sleep, see UnsafeObservableBuilder.cancellable()
+ *
  * @param <T> The class for the Observable
  */
 public class ObservableBuilder<T> {
 
-    private final UnsafeObservableBuilder<T> builder = new UnsafeObservableBuilder<>();
+    private final UnsafeObservableBuilder<T> builder;
+
+    /**
+     * Creates an ObservableBuilder with no events
+     */
+    public ObservableBuilder(){
+        this(new UnsafeObservableBuilder<T>().cancellable());
+    }
+
+    private ObservableBuilder(final UnsafeObservableBuilder<T> builder){
+        this.builder = builder;
+    }
 
     /**
      * Adds a new event to the observable that emits the given item
@@ -25,6 +42,122 @@ public class ObservableBuilder<T> {
         return this;
     }
 
+    /**
+     * Adds a new event to the observable that emits every item of the given Iterable
+     * @param items The items to emit
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#emitAll(Iterable)
+     */
+    public ObservableBuilder<T> emitAll(final Iterable<? extends T> items){
+        builder.emitAll(items);
+        return this;
+    }
+
+    /**
+     * Adds a new event to the observable that emits every item of the given array
+     * @param items The items to emit
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#emitArray(Object[])
+     */
+    @SafeVarargs
+    public final ObservableBuilder<T> emitArray(final T... items){
+        final Object[] copy = new Object[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copy[i] = items[i];
+        }
+        builder.emitCopy(copy);
+        return this;
+    }
+
+    /**
+     * Adds a new event to the observable that emits an item for every int in a range
+     * @param start The first int of the range
+     * @param count The number of ints in the range
+     * @param mapper The function that turns an int from the range into the item to emit
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#emitRange(int, int, Func1)
+     */
+    public ObservableBuilder<T> emitRange(final int start, final int count, final Func1<Integer, ? extends T> mapper){
+        builder.emitRange(start, count, mapper);
+        return this;
+    }
+
+    /**
+     * Adds a new event to the observable that emits the given number of items, each one created by the generator
+     * @param count The number of items to emit
+     * @param generator The function that creates each item
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#generate(long, Func0)
+     */
+    public ObservableBuilder<T> generate(final long count, final Func0<? extends T> generator){
+        builder.generate(count, generator);
+        return this;
+    }
+
+    /**
+     * Adds a new event to the observable that emits items at a steady rate, as described by the LoadGenerator
+     * @param generator The LoadGenerator describing the items and the rate to emit them at
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#emitAtRate(LoadGenerator)
+     */
+    public ObservableBuilder<T> emitAtRate(final LoadGenerator<? extends T> generator){
+        builder.emitAtRate(generator);
+        return this;
+    }
+
+    /**
+     * Adds a new event to the observable that replays every notification in the given Recording
+     * @param recording The recording to replay, which must not have been terminated, see replayAndTerminate()
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#replay(Recording)
+     */
+    public ObservableBuilder<T> replay(final Recording<? extends T> recording){
+        if (recording.isTerminated()) {
+            throw new IllegalArgumentException("Terminated recordings can only be replayed by replayAndTerminate()");
+        }
+        builder.replay(recording);
+        return this;
+    }
+
+    /**
+     * Builds an Observable that performs all previous events and lastly replays the given Recording,
+     * terminating with the error or completion it was recorded with
+     * @param recording The recording to replay, which must have been terminated
+     * @return The final Observable
+     * @see UnsafeObservableBuilder#replay(Recording)
+     */
+    public Observable<T> replayAndTerminate(final Recording<? extends T> recording){
+        if (!recording.isTerminated()) {
+            throw new IllegalArgumentException("Recordings that weren't terminated can only be replayed by replay()");
+        }
+        builder.replay(recording);
+        return builder.build();
+    }
+
+    /**
+     * Adds a block of events to the observable that performs all the events of the given builder the given number of times
+     * @param times The number of times to perform the events
+     * @param block The builder holding the events to repeat, which must not have been terminated
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#repeat(long, UnsafeObservableBuilder)
+     */
+    public ObservableBuilder<T> repeat(final long times, final ObservableBuilder<T> block){
+        builder.repeat(times, block.unterminated());
+        return this;
+    }
+
+    /**
+     * Builds an Observable that performs all previous events and lastly performs all the events of the given builder
+     * over and over, until it's Subscriber unsubscribes
+     * @param block The builder holding the events to loop over, which must not have been terminated
+     * @return The final Observable
+     * @see UnsafeObservableBuilder#loop(UnsafeObservableBuilder)
+     */
+    public Observable<T> loop(final ObservableBuilder<T> block){
+        builder.loop(block.unterminated());
+        return builder.build();
+    }
+
     /**
      * Builds an Observable that performs all previous events and lastly terminates with the given error
      * @param error The error
@@ -74,6 +207,47 @@ public class ObservableBuilder<T> {
         return this;
     }
 
+    /**
+     * Adds a new event to the observable that moves all further events onto a Worker of the given Scheduler
+     * @param scheduler The scheduler to run the further events on
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#on(Scheduler)
+     */
+    public ObservableBuilder<T> on(final Scheduler scheduler){
+        builder.on(scheduler);
+        return this;
+    }
+
+    /**
+     * Makes Observables built by the builder respect backpressure, only emitting items as they are requested
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#backpressured()
+     */
+    public ObservableBuilder<T> backpressured(){
+        builder.backpressured();
+        return this;
+    }
+
+    /**
+     * Makes Observables built by the builder sleep on the given Scheduler rather than blocking the subscribing thread
+     * @param scheduler The scheduler to sleep on
+     * @return The builder to build the rest of the observable with
+     * @see UnsafeObservableBuilder#sleepOn(Scheduler)
+     */
+    public ObservableBuilder<T> sleepOn(final Scheduler scheduler){
+        builder.sleepOn(scheduler);
+        return this;
+    }
+
+    /**
+     * Creates a new builder holding all the events and settings of this one, that can be extended separately
+     * @return The new builder
+     * @see UnsafeObservableBuilder#fork()
+     */
+    public ObservableBuilder<T> fork(){
+        return new ObservableBuilder<>(builder.fork());
+    }
+
     /**
      * Returns an Observable the performs all event's given to the builder when subscribed to
      * @return The Observable
@@ -81,4 +255,21 @@ public class ObservableBuilder<T> {
     public Observable<T> build(){
         return builder.build();
     }
+
+    /**
+     * Returns an Observable the performs all event's given to the builder when subscribed to, sleeping on the given Scheduler
+     * @param scheduler The scheduler to sleep on
+     * @return The Observable
+     * @see UnsafeObservableBuilder#build(Scheduler)
+     */
+    public Observable<T> build(final Scheduler scheduler){
+        return builder.build(scheduler);
+    }
+
+    private UnsafeObservableBuilder<T> unterminated(){
+        if (builder.hasTerminalEvents()) {
+            throw new IllegalArgumentException("Repeated blocks can't complete or error");
+        }
+        return builder;
+    }
 }
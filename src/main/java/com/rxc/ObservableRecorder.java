@@ -0,0 +1,216 @@
+package com.rxc;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Records every notification an Observable gives it's Subscriber into a file, to be replayed later through a Recording
+ *
+ * The file starts with a short header, followed by a record for every notification: a byte for the kind of the
+ * notification, the nanoseconds since the previous notification as a variable length number, and for items and errors
+ * the length of their bytes followed by the bytes themselves. Items are turned into bytes by an ItemSerializer,
+ * errors are recorded as their class name, message and stack trace, and replay as a RecordedException.
+ * Records are written through a buffer, and the file is closed once the Observable terminates or it's Subscriber
+ * unsubscribes, a file that was cut short only loses the records that were still buffered.
+ * If an item can't be recorded the Subscriber is given the IOException and the recording ends where it was,
+ * without recording an error the source never produced
+ */
+public final class ObservableRecorder {
+    static final int MAGIC = 0x52584352;
+    static final byte VERSION = 2;
+
+    static final byte ON_NEXT = 0;
+    static final byte ON_ERROR = 1;
+    static final byte ON_COMPLETED = 2;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ObservableRecorder(){
+    }
+
+    /**
+     * Returns an Observable that passes on everything the given Observable does, recording it into the given file
+     * Every subscription to the returned Observable starts the file over, if the file can't be written to
+     * the subscription errors with the IOException instead
+     * @param source The Observable to record
+     * @param file The file to record into
+     * @param serializer The serializer that turns the items into bytes
+     * @param <T> The class for the Observable
+     * @return The Observable
+     */
+    public static <T> Observable<T> record(final Observable<T> source, final File file,
+                                           final ItemSerializer<? super T> serializer){
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(final Subscriber<? super T> subscriber) {
+                final Writer<T> writer;
+                try {
+                    writer = new Writer<>(file, serializer);
+                } catch (final IOException e) {
+                    subscriber.onError(e);
+                    return;
+                }
+
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        writer.close();
+                    }
+                }));
+                source.unsafeSubscribe(new Subscriber<T>(subscriber) {
+                    @Override
+                    public void onNext(final T item) {
+                        try {
+                            writer.writeItem(item);
+                        } catch (final IOException e) {
+                            // The source didn't fail, so the failure to record is passed on without being recorded
+                            writer.close();
+                            subscriber.onError(e);
+                            unsubscribe();
+                            return;
+                        }
+                        subscriber.onNext(item);
+                    }
+
+                    @Override
+                    public void onError(final Throwable e) {
+                        try {
+                            writer.writeError(e);
+                            writer.close();
+                        } catch (final IOException ignored) {
+                            // The original error is more interesting than the failure to record it
+                        }
+                        subscriber.onError(e);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        try {
+                            writer.writeCompleted();
+                            writer.close();
+                        } catch (final IOException e) {
+                            subscriber.onError(e);
+                            return;
+                        }
+                        subscriber.onCompleted();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Writes the records of a single subscription
+     */
+    private static final class Writer<T> {
+        private final DataOutputStream out;
+        private final ItemSerializer<? super T> serializer;
+        private long last;
+        private boolean closed;
+
+        private Writer(final File file, final ItemSerializer<? super T> serializer) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            this.serializer = serializer;
+            this.last = System.nanoTime();
+
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        synchronized void writeItem(final T item) throws IOException {
+            writeRecord(ON_NEXT, serializer.serialize(item));
+        }
+
+        synchronized void writeError(final Throwable error) throws IOException {
+            writeRecord(ON_ERROR, serialize(error));
+        }
+
+        synchronized void writeCompleted() throws IOException {
+            writeRecord(ON_COMPLETED, null);
+        }
+
+        synchronized void close(){
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                out.close();
+            } catch (final IOException ignored) {
+                // Everything that could be written has been
+            }
+        }
+
+        private void writeRecord(final byte kind, final byte[] bytes) throws IOException {
+            if (closed) {
+                return;
+            }
+
+            final long now = System.nanoTime();
+            out.writeByte(kind);
+            writeVarLong(out, now - last);
+            last = now;
+
+            if (bytes != null) {
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private static byte[] serialize(final Throwable error) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writeString(out, error.getClass().getName());
+                writeString(out, error.getMessage());
+
+                final StackTraceElement[] stackTrace = error.getStackTrace();
+                out.writeInt(stackTrace.length);
+                for (final StackTraceElement element : stackTrace) {
+                    writeString(out, element.getClassName());
+                    writeString(out, element.getMethodName());
+                    writeString(out, element.getFileName());
+                    out.writeInt(element.getLineNumber());
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        private static void writeString(final DataOutputStream out, final String string) throws IOException {
+            if (string == null) {
+                out.writeInt(-1);
+                return;
+            }
+
+            final byte[] bytes = string.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes a non negative number seven bits at a time, lowest bits first, with the top bit of every byte but the last set
+     * @param out The stream to write to
+     * @param value The number
+     * @throws IOException If the stream can't be written to
+     */
+    static void writeVarLong(final OutputStream out, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+}
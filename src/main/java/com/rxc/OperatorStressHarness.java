@@ -0,0 +1,388 @@
+package com.rxc;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.subscriptions.Subscriptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stresses an operator by driving it with several UnsafeObservableBuilder scripts at once, and checks what the operator
+ * passes on to it's Subscriber against the Observable contract
+ *
+ * Every iteration gives the operator a fresh Subscriber, and runs all the scripts against the Subscriber the operator
+ * returns, as separate tasks in a ForkJoinPool. The scripts of an iteration wait at a start gate until as many of them
+ * as the pool has threads are running, and are then released together, so even short scripts overlap. Iterations run
+ * in waves of as many as the pool has threads for, so every script waiting at a gate has a thread of it's own.
+ * The Subscriber yields it's thread in the middle of every call it gets, which gives calls from other threads the
+ * chance to overlap it even on a single processor, so the operator sees onNext, onError and onCompleted from several
+ * threads at once, the way a broken upstream would call it.
+ * Scripts can move onto other threads with on() or sleepOn(), so an iteration only counts as done once every one of
+ * it's scripts has performed it's last event or been unsubscribed from. Scripts that are still running after the
+ * script timeout are given up on and counted as unfinished, so a script that never ends can't hang the run.
+ * The run reports how many items made it through the operator, and every violation of the contract it detected
+ *
+ * OperatorStressHarness is immutable, every with method returns a new OperatorStressHarness
+ *
+ * @param <T> The class for the items going into the operator
+ * @param <R> The class for the items coming out of the operator
+ */
+public final class OperatorStressHarness<T, R> {
+    private static final int MAX_THROWN = 10;
+    private static final long DEFAULT_SCRIPT_TIMEOUT_SECONDS = 10;
+
+    private final Observable.Operator<? extends R, ? super T> operator;
+    private final List<Observable<T>> scripts;
+    private final long iterations;
+    private final int parallelism;
+    private final long scriptTimeoutNanos;
+
+    /**
+     * Creates an OperatorStressHarness with no scripts, that runs 1000 iterations with a thread per processor,
+     * giving every iteration's scripts 10 seconds to finish
+     * @param operator The operator to stress
+     */
+    public OperatorStressHarness(final Observable.Operator<? extends R, ? super T> operator){
+        this(operator, Collections.<Observable<T>>emptyList(), 1000, Runtime.getRuntime().availableProcessors(),
+                TimeUnit.SECONDS.toNanos(DEFAULT_SCRIPT_TIMEOUT_SECONDS));
+    }
+
+    private OperatorStressHarness(final Observable.Operator<? extends R, ? super T> operator,
+                                  final List<Observable<T>> scripts, final long iterations, final int parallelism,
+                                  final long scriptTimeoutNanos){
+        if (iterations < 0) {
+            throw new IllegalArgumentException("iterations must not be negative");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (scriptTimeoutNanos < 0) {
+            throw new IllegalArgumentException("The script timeout must not be negative");
+        }
+
+        this.operator = operator;
+        this.scripts = scripts;
+        this.iterations = iterations;
+        this.parallelism = parallelism;
+        this.scriptTimeoutNanos = scriptTimeoutNanos;
+    }
+
+    /**
+     * Returns an OperatorStressHarness that also runs the given script in every iteration
+     * The script's events are copied out of the builder, so later changes to the builder don't affect the harness
+     * @param script The builder holding the events to give the operator
+     * @return The OperatorStressHarness
+     */
+    public OperatorStressHarness<T, R> withScript(final UnsafeObservableBuilder<T> script){
+        final List<Observable<T>> scripts = new ArrayList<>(this.scripts);
+        scripts.add(script.fork().perform(new Action1<Subscriber<? super T>>() {
+            @Override
+            public void call(final Subscriber<? super T> subscriber) {
+                ((Forwarder<?>) subscriber).finished.countDown();
+            }
+        }).build());
+        return new OperatorStressHarness<>(operator, Collections.unmodifiableList(scripts), iterations, parallelism,
+                scriptTimeoutNanos);
+    }
+
+    /**
+     * Returns an OperatorStressHarness that runs the given number of iterations
+     * @param iterations The number of times to run all the scripts against the operator
+     * @return The OperatorStressHarness
+     */
+    public OperatorStressHarness<T, R> withIterations(final long iterations){
+        return new OperatorStressHarness<>(operator, scripts, iterations, parallelism, scriptTimeoutNanos);
+    }
+
+    /**
+     * Returns an OperatorStressHarness that runs on the given number of threads
+     * @param parallelism The number of threads in the ForkJoinPool the scripts run in
+     * @return The OperatorStressHarness
+     */
+    public OperatorStressHarness<T, R> withParallelism(final int parallelism){
+        return new OperatorStressHarness<>(operator, scripts, iterations, parallelism, scriptTimeoutNanos);
+    }
+
+    /**
+     * Returns an OperatorStressHarness that waits the given time for every iteration's scripts to finish
+     * @param timeout How long the scripts of an iteration have to finish, counted from when the scripts started
+     * @param unit The unit of the timeout
+     * @return The OperatorStressHarness
+     */
+    public OperatorStressHarness<T, R> withScriptTimeout(final long timeout, final TimeUnit unit){
+        return new OperatorStressHarness<>(operator, scripts, iterations, parallelism, unit.toNanos(timeout));
+    }
+
+    /**
+     * Runs every iteration, blocking until they are all done
+     * @return The report of the run
+     */
+    public StressReport run(){
+        if (scripts.isEmpty()) {
+            throw new IllegalStateException("There are no scripts to run");
+        }
+
+        final Stress stress = new Stress();
+        final int gate = Math.min(scripts.size(), parallelism);
+        final int wave = Math.max(1, parallelism / gate);
+        final List<Script> tasks = new ArrayList<>();
+        final List<Checker<R>> checkers = new ArrayList<>(wave);
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        final long start = System.nanoTime();
+        try {
+            long done = 0;
+            while (done < iterations) {
+                final long count = Math.min(wave, iterations - done);
+                for (long i = 0; i < count; i++) {
+                    startIteration(stress, pool, gate, tasks, checkers);
+                }
+                for (final Script task : tasks) {
+                    task.join();
+                }
+                final long deadline = System.nanoTime() + scriptTimeoutNanos;
+                for (final Script task : tasks) {
+                    if (!task.forwarder.awaitFinished(deadline)) {
+                        stress.unfinished();
+                    }
+                }
+                for (final Checker<R> checker : checkers) {
+                    stress.delivered(checker.items.get());
+                }
+
+                tasks.clear();
+                checkers.clear();
+                done += count;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return stress.report(iterations, System.nanoTime() - start);
+    }
+
+    /**
+     * Starts a single iteration, submitting every script to the pool behind a start gate
+     */
+    private void startIteration(final Stress stress, final ForkJoinPool pool, final int gate,
+                                final List<Script> tasks, final List<Checker<R>> checkers){
+        final Checker<R> checker = new Checker<>(stress);
+        final Subscriber<? super T> upstream;
+        try {
+            upstream = operator.call(checker);
+            upstream.onStart();
+        } catch (final Throwable e) {
+            stress.threw(e);
+            return;
+        }
+        checkers.add(checker);
+
+        final CountDownLatch start = new CountDownLatch(gate);
+        for (final Observable<T> script : scripts) {
+            final Script task = new Script(stress, script, upstream, start);
+            pool.execute(task);
+            tasks.add(task);
+        }
+    }
+
+    /**
+     * Runs a single script against the Subscriber the operator returned, once enough of the iteration's scripts are running
+     */
+    private final class Script extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Observable<T> script;
+        private final Subscriber<? super T> upstream;
+        private final CountDownLatch start;
+        private final Forwarder<T> forwarder;
+
+        private Script(final Stress stress, final Observable<T> script, final Subscriber<? super T> upstream,
+                       final CountDownLatch start){
+            this.script = script;
+            this.upstream = upstream;
+            this.start = start;
+            this.forwarder = new Forwarder<>(stress, upstream);
+        }
+
+        @Override
+        protected void compute() {
+            start.countDown();
+            try {
+                start.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            upstream.add(forwarder);
+            script.unsafeSubscribe(forwarder);
+        }
+    }
+
+    /**
+     * Passes a script's events on to the Subscriber the operator returned, and tells the harness when the script is done
+     * A script is done once it has performed it's last event, or once it has been unsubscribed from
+     */
+    private static final class Forwarder<T> extends Subscriber<T> {
+        private final Stress stress;
+        private final Subscriber<? super T> upstream;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private Forwarder(final Stress stress, final Subscriber<? super T> upstream){
+            this.stress = stress;
+            this.upstream = upstream;
+            add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    finished.countDown();
+                }
+            }));
+        }
+
+        /**
+         * Waits for the script to be done
+         * @param deadline The System.nanoTime() to give up at
+         * @return True if the script is done, false if it was still running at the deadline
+         */
+        boolean awaitFinished(final long deadline){
+            try {
+                return finished.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public void onNext(final T item) {
+            try {
+                upstream.onNext(item);
+            } catch (final Throwable e) {
+                stress.threw(e);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            try {
+                upstream.onError(error);
+            } catch (final Throwable e) {
+                stress.threw(e);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            try {
+                upstream.onCompleted();
+            } catch (final Throwable e) {
+                stress.threw(e);
+            }
+        }
+    }
+
+    /**
+     * The Subscriber given to the operator, checking every call it gets against the contract
+     */
+    private static final class Checker<R> extends Subscriber<R> {
+        private final Stress stress;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicBoolean terminated = new AtomicBoolean();
+        private final AtomicLong items = new AtomicLong();
+
+        private Checker(final Stress stress){
+            this.stress = stress;
+        }
+
+        @Override
+        public void onNext(final R item) {
+            enter();
+            if (terminated.get()) {
+                stress.violated(ContractViolation.ON_NEXT_AFTER_TERMINAL);
+            } else {
+                items.incrementAndGet();
+            }
+            active.decrementAndGet();
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            terminate();
+        }
+
+        @Override
+        public void onCompleted() {
+            terminate();
+        }
+
+        private void terminate(){
+            enter();
+            if (terminated.getAndSet(true)) {
+                stress.violated(ContractViolation.DUPLICATE_TERMINAL);
+            }
+            active.decrementAndGet();
+        }
+
+        private void enter(){
+            if (active.getAndIncrement() != 0) {
+                stress.violated(ContractViolation.CONCURRENT_CALL);
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Everything detected during a run, shared by all the iterations
+     */
+    private static final class Stress {
+        private final AtomicLongArray violations = new AtomicLongArray(ContractViolation.values().length);
+        private final AtomicLong itemsDelivered = new AtomicLong();
+        private final AtomicLong unfinishedScripts = new AtomicLong();
+        private final AtomicInteger thrownCount = new AtomicInteger();
+        private final ConcurrentLinkedQueue<Throwable> thrown = new ConcurrentLinkedQueue<>();
+
+        void violated(final ContractViolation violation){
+            violations.incrementAndGet(violation.ordinal());
+        }
+
+        void threw(final Throwable e){
+            violated(ContractViolation.OPERATOR_THREW);
+            if (thrownCount.getAndIncrement() < MAX_THROWN) {
+                thrown.add(e);
+            }
+        }
+
+        void delivered(final long items){
+            itemsDelivered.addAndGet(items);
+        }
+
+        void unfinished(){
+            unfinishedScripts.incrementAndGet();
+        }
+
+        StressReport report(final long iterations, final long elapsedNanos){
+            final Map<ContractViolation, Long> counts = new EnumMap<>(ContractViolation.class);
+            for (final ContractViolation violation : ContractViolation.values()) {
+                final long count = violations.get(violation.ordinal());
+                if (count > 0) {
+                    counts.put(violation, count);
+                }
+            }
+            return new StressReport(iterations, itemsDelivered.get(), unfinishedScripts.get(), elapsedNanos, counts,
+                    new ArrayList<>(thrown));
+        }
+    }
+}
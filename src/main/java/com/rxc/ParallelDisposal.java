@@ -0,0 +1,90 @@
+package com.rxc;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unsubscribes a detached array of references in chunks spread across an Executor
+ *
+ * The calling thread works through chunks alongside the Executor and only waits once every chunk has been claimed,
+ * so disposal finishes even if the Executor is saturated, rejects the work or never runs it
+ */
+final class ParallelDisposal {
+    static final int CHUNK_SIZE = 1024;
+
+    private final SlotReference[] refs;
+    private final int chunkCount;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final CountDownLatch finishedChunks;
+    private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+    private ParallelDisposal(final SlotReference[] refs){
+        this.refs = refs;
+        chunkCount = (refs.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        finishedChunks = new CountDownLatch(chunkCount);
+    }
+
+    /**
+     * Unsubscribes every subscription in the given references that is still subscribed
+     * An attempt is made on every subscription, even if some of them throw
+     * @param refs The references, any of which may be null
+     * @param executor The executor to spread the chunks across
+     * @param errors The collection that any thrown errors are added to
+     */
+    static void dispose(final SlotReference[] refs, final Executor executor, final Collection<Throwable> errors){
+        final ParallelDisposal disposal = new ParallelDisposal(refs);
+        disposal.run(executor);
+        errors.addAll(disposal.errors);
+    }
+
+    private void run(final Executor executor){
+        final int helpers = Math.min(chunkCount - 1, Runtime.getRuntime().availableProcessors());
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                disposeChunks();
+            }
+        };
+
+        try {
+            for (int i = 0; i < helpers; i++) {
+                executor.execute(worker);
+            }
+        } catch (final RejectedExecutionException ignore){
+            //The calling thread picks up whatever the executor won't take
+        }
+
+        disposeChunks();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finishedChunks.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void disposeChunks(){
+        int chunk = nextChunk.getAndIncrement();
+        while (chunk < chunkCount) {
+            final int from = chunk * CHUNK_SIZE;
+            try {
+                SlotTable.dispose(refs, from, Math.min(from + CHUNK_SIZE, refs.length), errors);
+            } finally {
+                finishedChunks.countDown();
+            }
+            chunk = nextChunk.getAndIncrement();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.rxc;
+
+/**
+ * An error replayed from a Recording
+ *
+ * Errors are recorded as their class name, message and stack trace rather than with java serialization,
+ * so replaying a recording from another machine never deserializes anything but it's items.
+ * The replayed error carries the message and stack trace of the original, and remembers the original's class name
+ */
+public class RecordedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String recordedClassName;
+
+    /**
+     * Creates a RecordedException
+     * @param recordedClassName The class name of the error that was recorded
+     * @param message The message of the error that was recorded, or null if it had none
+     */
+    public RecordedException(final String recordedClassName, final String message){
+        super(message);
+        this.recordedClassName = recordedClassName;
+    }
+
+    /**
+     * @return The class name of the error that was recorded
+     */
+    public String getRecordedClassName(){
+        return recordedClassName;
+    }
+
+    @Override
+    public String toString() {
+        final String message = getLocalizedMessage();
+        return message != null ? recordedClassName + ": " + message : recordedClassName;
+    }
+}
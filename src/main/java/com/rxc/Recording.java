@@ -0,0 +1,401 @@
+package com.rxc;
+
+import rx.Notification;
+import rx.Observable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file of notifications written by ObservableRecorder, for use with ObservableBuilder.replay(),
+ * or ObservableBuilder.replayAndTerminate() once the recording has been terminated
+ *
+ * The file is memory mapped rather than read onto the heap, in windows of up to a gigabyte so recordings aren't limited
+ * to the two gigabytes a single mapping can hold. Every replay reads through it's own view of the windows, moving on to
+ * the next window whenever a record crosses the end of one, and only deserializes an item when it's about to be emitted,
+ * so recordings can be far larger than the heap.
+ * Recorded errors replay as RecordedExceptions, nothing but the items is ever deserialized.
+ * A replay emits every notification at the same time after the start of the replay as it was recorded at,
+ * scaled by the speed of the Recording. A record that was cut short by the end of the file is ignored
+ *
+ * Recording is immutable, withSpeed returns a new Recording
+ *
+ * @param <T> The class for the items
+ */
+public final class Recording<T> {
+    /**
+     * The speed that replays notifications at the same pace they were recorded at
+     */
+    public static final double ORIGINAL_SPEED = 1;
+
+    /**
+     * The speed that replays notifications as fast as possible
+     */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    static final int WINDOW_SIZE = 1 << 30;
+
+    private static final int HEADER_LENGTH = 5;
+
+    private final ByteBuffer[] windows;
+    private final int windowSize;
+    private final long end;
+    private final ItemSerializer<? extends T> serializer;
+    private final double speed;
+    private final long itemCount;
+    private final long durationNanos;
+    private final boolean terminated;
+
+    private Recording(final ByteBuffer[] windows, final int windowSize, final long end,
+                      final ItemSerializer<? extends T> serializer, final double speed,
+                      final long itemCount, final long durationNanos, final boolean terminated){
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+
+        this.windows = windows;
+        this.windowSize = windowSize;
+        this.end = end;
+        this.serializer = serializer;
+        this.speed = speed;
+        this.itemCount = itemCount;
+        this.durationNanos = durationNanos;
+        this.terminated = terminated;
+    }
+
+    /**
+     * Opens a file written by ObservableRecorder, the file is read through once to check it, without deserializing anything
+     * @param file The file
+     * @param serializer The serializer that turns the bytes of the recorded items back into items
+     * @param <T> The class for the items
+     * @return The Recording, replaying at it's original speed
+     * @throws IOException If the file can't be read or isn't a recording
+     */
+    public static <T> Recording<T> open(final File file, final ItemSerializer<? extends T> serializer) throws IOException {
+        return open(file, serializer, WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a file written by ObservableRecorder, mapping it in windows of the given size
+     * @param file The file
+     * @param serializer The serializer that turns the bytes of the recorded items back into items
+     * @param windowSize The most bytes of the file to map at once
+     * @param <T> The class for the items
+     * @return The Recording, replaying at it's original speed
+     * @throws IOException If the file can't be read or isn't a recording
+     */
+    static <T> Recording<T> open(final File file, final ItemSerializer<? extends T> serializer, final int windowSize)
+            throws IOException {
+        final ByteBuffer[] windows;
+        final long size;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            final FileChannel channel = randomAccessFile.getChannel();
+            size = channel.size();
+            windows = new ByteBuffer[(int) ((size + windowSize - 1) / windowSize)];
+            for (int i = 0; i < windows.length; i++) {
+                final long position = (long) i * windowSize;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+            }
+        }
+
+        final Cursor header = new Cursor(windows, windowSize, size, 0);
+        if (header.remaining() < HEADER_LENGTH || header.getInt() != ObservableRecorder.MAGIC) {
+            throw new IOException(file + " isn't a recording");
+        }
+        final byte version = header.get();
+        if (version != ObservableRecorder.VERSION) {
+            throw new IOException(file + " is a version " + version + " recording, only version "
+                    + ObservableRecorder.VERSION + " is supported");
+        }
+
+        final Playback<T> scan = new Playback<>(null, new Cursor(windows, windowSize, size, HEADER_LENGTH), 0, ORIGINAL_SPEED);
+        long itemCount = 0;
+        long durationNanos = 0;
+        boolean terminated = false;
+        while (scan.hasNext()) {
+            if (scan.nextIsItem()) {
+                itemCount++;
+            } else {
+                terminated = true;
+            }
+            durationNanos = scan.nextDue();
+            scan.skip();
+        }
+
+        return new Recording<>(windows, windowSize, scan.cursor.position(), serializer, ORIGINAL_SPEED,
+                itemCount, durationNanos, terminated);
+    }
+
+    /**
+     * Returns a Recording that replays at the given speed
+     * @param speed How many times faster than it was recorded to replay, ORIGINAL_SPEED or MAX_SPEED for example
+     * @return The Recording
+     */
+    public Recording<T> withSpeed(final double speed){
+        return new Recording<>(windows, windowSize, end, serializer, speed, itemCount, durationNanos, terminated);
+    }
+
+    /**
+     * @return The number of items in the recording
+     */
+    public long getItemCount(){
+        return itemCount;
+    }
+
+    /**
+     * @return The nanoseconds between the start of the recording and it's last notification
+     */
+    public long getDurationNanos(){
+        return durationNanos;
+    }
+
+    /**
+     * @return True if the recording ends with an error or completion
+     */
+    public boolean isTerminated(){
+        return terminated;
+    }
+
+    /**
+     * Builds an Observable that replays the recording
+     * @return The Observable
+     * @see ObservableBuilder#replay(Recording)
+     * @see ObservableBuilder#replayAndTerminate(Recording)
+     */
+    public Observable<T> replay(){
+        if (terminated) {
+            return new ObservableBuilder<T>().replayAndTerminate(this);
+        }
+        return new ObservableBuilder<T>().replay(this).build();
+    }
+
+    /**
+     * Starts a replay of the recording
+     * @param now The time the replay starts at, in nanoseconds
+     * @return The replay
+     */
+    Playback<T> start(final long now){
+        return new Playback<>(serializer, new Cursor(windows, windowSize, end, HEADER_LENGTH), now, speed);
+    }
+
+    /**
+     * Reads a number written by ObservableRecorder.writeVarLong()
+     * @param cursor The cursor to read from
+     * @return The number, or -1 if it was cut short by the end of the recording
+     */
+    private static long readVarLong(final Cursor cursor){
+        long value = 0;
+        int shift = 0;
+        while (cursor.remaining() > 0) {
+            final byte b = cursor.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+        return -1;
+    }
+
+    /**
+     * A position in the mapped windows of a recording, that moves from one window to the next as it is read
+     */
+    static final class Cursor {
+        private final ByteBuffer[] windows;
+        private final int windowSize;
+        private final long end;
+
+        private long position;
+        private ByteBuffer window;
+
+        private Cursor(final ByteBuffer[] windows, final int windowSize, final long end, final long position){
+            this.windows = windows;
+            this.windowSize = windowSize;
+            this.end = end;
+            position(position);
+        }
+
+        long position(){
+            return position;
+        }
+
+        long remaining(){
+            return end - position;
+        }
+
+        void position(final long position){
+            this.position = position;
+            window = null;
+            if (position < end) {
+                // Every replay gets views of it's own, the windows themselves are shared
+                window = windows[(int) (position / windowSize)].duplicate();
+                window.position((int) (position % windowSize));
+            }
+        }
+
+        byte get(){
+            if (!window.hasRemaining()) {
+                position(position);
+            }
+            position++;
+            return window.get();
+        }
+
+        int getInt(){
+            return (get() & 0xFF) << 24 | (get() & 0xFF) << 16 | (get() & 0xFF) << 8 | (get() & 0xFF);
+        }
+
+        void get(final byte[] bytes){
+            int at = 0;
+            while (at < bytes.length) {
+                if (!window.hasRemaining()) {
+                    position(position);
+                }
+                final int length = Math.min(bytes.length - at, window.remaining());
+                window.get(bytes, at, length);
+                position += length;
+                at += length;
+            }
+        }
+    }
+
+    /**
+     * A single replay of a Recording, reading the records one at a time
+     */
+    static final class Playback<T> {
+        private final ItemSerializer<? extends T> serializer;
+        private final Cursor cursor;
+        private final long start;
+        private final double speed;
+
+        private byte kind;
+        private long timestamp;
+        private int length;
+        private boolean hasNext;
+
+        private Playback(final ItemSerializer<? extends T> serializer, final Cursor cursor, final long start,
+                         final double speed){
+            this.serializer = serializer;
+            this.cursor = cursor;
+            this.start = start;
+            this.speed = speed;
+            advance();
+        }
+
+        /**
+         * @return True if there are notifications left to replay
+         */
+        boolean hasNext(){
+            return hasNext;
+        }
+
+        /**
+         * @return True if the next notification is an item
+         */
+        boolean nextIsItem(){
+            return kind == ObservableRecorder.ON_NEXT;
+        }
+
+        /**
+         * @return The time the next notification is due at in nanoseconds
+         */
+        long nextDue(){
+            return start + (long) (timestamp / speed);
+        }
+
+        /**
+         * Reads the next notification, a notification that can't be deserialized is replayed as an error
+         * and ends the replay
+         * @return The notification
+         */
+        Notification<T> next(){
+            final byte[] bytes = new byte[length];
+            cursor.get(bytes);
+
+            Notification<T> notification;
+            try {
+                switch (kind) {
+                    case ObservableRecorder.ON_NEXT:
+                        notification = Notification.<T>createOnNext(serializer.deserialize(bytes));
+                        break;
+                    case ObservableRecorder.ON_ERROR:
+                        notification = Notification.createOnError(readError(bytes));
+                        break;
+                    default:
+                        notification = Notification.createOnCompleted();
+                        break;
+                }
+            } catch (final IOException e) {
+                cursor.position(cursor.end);
+                notification = Notification.createOnError(e);
+            }
+
+            advance();
+            return notification;
+        }
+
+        private void skip(){
+            cursor.position(cursor.position() + length);
+            advance();
+        }
+
+        private void advance(){
+            final long at = cursor.position();
+            hasNext = false;
+            if (cursor.remaining() <= 0) {
+                return;
+            }
+
+            kind = cursor.get();
+            final long delta = readVarLong(cursor);
+            final long length = kind == ObservableRecorder.ON_COMPLETED ? 0 : readVarLong(cursor);
+            if (delta < 0 || length < 0 || length > cursor.remaining() || length > Integer.MAX_VALUE) {
+                cursor.position(at);
+                return;
+            }
+
+            timestamp += delta;
+            this.length = (int) length;
+            hasNext = true;
+        }
+
+        private static Throwable readError(final byte[] bytes) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                final RecordedException error = new RecordedException(readString(in), readString(in));
+
+                final int depth = in.readInt();
+                if (depth < 0 || depth > in.available()) {
+                    throw new IOException("Recorded error is cut short");
+                }
+
+                final StackTraceElement[] stackTrace = new StackTraceElement[depth];
+                for (int i = 0; i < stackTrace.length; i++) {
+                    stackTrace[i] = new StackTraceElement(readString(in), readString(in), readString(in), in.readInt());
+                }
+                error.setStackTrace(stackTrace);
+                return error;
+            } catch (final RuntimeException e) {
+                throw new IOException("Can't read a recorded error", e);
+            }
+        }
+
+        private static String readString(final DataInputStream in) throws IOException {
+            final int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            if (length > in.available()) {
+                throw new IOException("Recorded error is cut short");
+            }
+
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, ObservableRecorder.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.rxc;
+
+/**
+ * How a DisposeBag holds on to the subscriptions added to it
+ */
+public enum ReferencePolicy {
+    /**
+     * Subscriptions are weakly referenced, once a subscription is unreferenced elsewhere it is garbage collected
+     * and cleaned out of the DisposeBag later on
+     */
+    WEAK,
+
+    /**
+     * Subscriptions are strongly referenced until they are disposed or removed from the DisposeBag
+     * Nothing is left for the garbage collector to clean up, so the contents of the DisposeBag are completely predictable
+     *
+     * Strong references are recycled once they have been disposed, so a DisposeBag that is repeatedly filled
+     * and disposed stops allocating anything at all once it has reached it's working size
+     */
+    STRONG
+}
@@ -0,0 +1,349 @@
+package com.rxc;
+
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates random EventScripts from seeds, to fuzz operators with, and shrinks the scripts that break a property
+ *
+ * A script is a run of emits and sleeps, valid scripts end in a single error or completion the way ObservableBuilder
+ * scripts do, invalid ones have terminal events anywhere, and always carry on after at least one of them.
+ * The length of every script is drawn from a distribution, evenly up to a maximum unless another one is given.
+ * The same seed always generates the same script, so a failure can be reproduced from it's seed alone.
+ * Checking a property runs the scripts in a ForkJoinPool and reports the failing script with the lowest index,
+ * so a check is as reproducible as a single script, however the scripts were spread over the threads.
+ * The failing script is then shrunk by leaving out events and shortening sleeps for as long as the property still fails
+ *
+ * ScriptGenerator is immutable, every with method returns a new ScriptGenerator
+ *
+ * @param <T> The class for the items
+ */
+public final class ScriptGenerator<T> {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int CHUNK_SIZE = 64;
+
+    private final Func1<Random, ? extends T> items;
+    private final Func1<Random, Integer> lengths;
+    private final double sleepChance;
+    private final long maxSleepMills;
+    private final double errorChance;
+    private final double terminalChance;
+    private final int parallelism;
+
+    /**
+     * Creates a ScriptGenerator that makes scripts of up to 20 events, with 10% of them zero length sleeps,
+     * ending in an error 10% of the time, running on a thread per processor
+     * @param items The function that creates each item from the script's Random
+     */
+    public ScriptGenerator(final Func1<Random, ? extends T> items){
+        this(items, uniform(20), 0.1, 0, 0.1, 0.1, Runtime.getRuntime().availableProcessors());
+    }
+
+    private ScriptGenerator(final Func1<Random, ? extends T> items, final Func1<Random, Integer> lengths,
+                            final double sleepChance, final long maxSleepMills, final double errorChance,
+                            final double terminalChance, final int parallelism){
+        if (maxSleepMills < 0) {
+            throw new IllegalArgumentException("maxSleepMills must not be negative");
+        }
+        if (sleepChance < 0 || sleepChance > 1 || errorChance < 0 || errorChance > 1
+                || terminalChance < 0 || terminalChance > 1) {
+            throw new IllegalArgumentException("Chances must be between 0 and 1");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        this.items = items;
+        this.lengths = lengths;
+        this.sleepChance = sleepChance;
+        this.maxSleepMills = maxSleepMills;
+        this.errorChance = errorChance;
+        this.terminalChance = terminalChance;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns a ScriptGenerator that makes scripts of up to the given length, the length of every script is picked
+     * evenly from 0 up to it, not counting the terminal event of valid scripts
+     * @param maxLength The most emits and sleeps a script can have
+     * @return The ScriptGenerator
+     */
+    public ScriptGenerator<T> withMaxLength(final int maxLength){
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("maxLength must not be negative");
+        }
+        return withLengths(uniform(maxLength));
+    }
+
+    /**
+     * Returns a ScriptGenerator that draws the length of every script from the given distribution,
+     * not counting the terminal event of valid scripts
+     * @param lengths The function that picks each length from the script's Random, it must not return a negative length
+     * @return The ScriptGenerator
+     */
+    public ScriptGenerator<T> withLengths(final Func1<Random, Integer> lengths){
+        return new ScriptGenerator<>(items, lengths, sleepChance, maxSleepMills, errorChance, terminalChance, parallelism);
+    }
+
+    /**
+     * Returns a ScriptGenerator that makes the given share of events sleeps, each of them picked evenly
+     * from 0 up to the given length
+     * @param sleepChance The chance of every event being a sleep, from 0 to 1
+     * @param maxSleepMills The longest a sleep can be in milliseconds
+     * @return The ScriptGenerator
+     */
+    public ScriptGenerator<T> withSleeps(final double sleepChance, final long maxSleepMills){
+        return new ScriptGenerator<>(items, lengths, sleepChance, maxSleepMills, errorChance, terminalChance, parallelism);
+    }
+
+    /**
+     * Returns a ScriptGenerator that makes the given share of terminal events errors
+     * @param errorChance The chance of every terminal event being an error rather than a completion, from 0 to 1
+     * @return The ScriptGenerator
+     */
+    public ScriptGenerator<T> withErrors(final double errorChance){
+        return new ScriptGenerator<>(items, lengths, sleepChance, maxSleepMills, errorChance, terminalChance, parallelism);
+    }
+
+    /**
+     * Returns a ScriptGenerator that makes the given share of the events of invalid scripts terminal events
+     * @param terminalChance The chance of every event of an invalid script being a terminal event, from 0 to 1
+     * @return The ScriptGenerator
+     */
+    public ScriptGenerator<T> withTerminals(final double terminalChance){
+        return new ScriptGenerator<>(items, lengths, sleepChance, maxSleepMills, errorChance, terminalChance, parallelism);
+    }
+
+    /**
+     * Returns a ScriptGenerator that checks properties on the given number of threads
+     * @param parallelism The number of threads in the ForkJoinPool the scripts are checked in
+     * @return The ScriptGenerator
+     */
+    public ScriptGenerator<T> withParallelism(final int parallelism){
+        return new ScriptGenerator<>(items, lengths, sleepChance, maxSleepMills, errorChance, terminalChance, parallelism);
+    }
+
+    /**
+     * Generates a script that follows the Observable contract, for use with ObservableBuilder
+     * @param seed The seed of the script
+     * @return The script
+     */
+    public EventScript<T> valid(final long seed){
+        final Random random = new Random(seed);
+        final int length = length(random);
+        final List<EventScript.Step> steps = new ArrayList<>(length + 1);
+        for (int i = 0; i < length; i++) {
+            steps.add(nextStep(random));
+        }
+        steps.add(terminal(random));
+        return new EventScript<>(steps);
+    }
+
+    /**
+     * Generates a script that breaks the Observable contract, for use with UnsafeObservableBuilder
+     * It always has events after a terminal event, either more terminal events or items
+     * @param seed The seed of the script
+     * @return The script
+     */
+    public EventScript<T> invalid(final long seed){
+        final Random random = new Random(seed);
+        final int length = length(random);
+        final List<EventScript.Step> steps = new ArrayList<>(length + 1);
+        for (int i = 0; i < length; i++) {
+            steps.add(random.nextDouble() < terminalChance ? terminal(random) : nextStep(random));
+        }
+
+        while (!continuesAfterTerminal(steps)) {
+            steps.add(random.nextInt(steps.size() + 1), terminal(random));
+        }
+        return new EventScript<>(steps);
+    }
+
+    /**
+     * Checks the property against the given number of valid scripts
+     * @param seed The seed the seeds of the scripts are derived from
+     * @param count The number of scripts to check
+     * @param property The property every script must have, throwing counts as not having it
+     * @return The shrunk failing script with the lowest index, or null if every script has the property
+     */
+    public EventScript<T> checkValid(final long seed, final long count, final Func1<? super EventScript<T>, Boolean> property){
+        return check(seed, count, true, property);
+    }
+
+    /**
+     * Checks the property against the given number of invalid scripts
+     * @param seed The seed the seeds of the scripts are derived from
+     * @param count The number of scripts to check
+     * @param property The property every script must have, throwing counts as not having it
+     * @return The shrunk failing script with the lowest index, or null if every script has the property
+     */
+    public EventScript<T> checkInvalid(final long seed, final long count, final Func1<? super EventScript<T>, Boolean> property){
+        return check(seed, count, false, property);
+    }
+
+    /**
+     * Shrinks a script that doesn't have the property to the smallest script this can find that still doesn't have it
+     * Events are left out in runs, from half the script down to single events, and sleeps are shortened to nothing,
+     * for as long as that keeps the property failing. A valid script only shrinks to valid scripts
+     * @param script The script that doesn't have the property
+     * @param property The property, throwing counts as not having it
+     * @return The shrunk script
+     */
+    public EventScript<T> shrink(final EventScript<T> script, final Func1<? super EventScript<T>, Boolean> property){
+        final boolean valid = script.isValid();
+        EventScript<T> smallest = script;
+
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+
+            for (int run = Math.max(1, smallest.size() / 2); run >= 1; run /= 2) {
+                for (int from = 0; from + run <= smallest.size(); ) {
+                    final EventScript<T> candidate = smallest.without(from, from + run);
+                    if ((!valid || candidate.isValid()) && fails(property, candidate)) {
+                        smallest = candidate;
+                        shrunk = true;
+                    } else {
+                        from++;
+                    }
+                }
+            }
+
+            final List<EventScript.Step> steps = smallest.getSteps();
+            for (int i = 0; i < steps.size(); i++) {
+                final EventScript.Step step = steps.get(i);
+                if (step.getOpcode() == EventProgram.SLEEP && (Long) step.getValue() > 0) {
+                    final EventScript<T> candidate = smallest.with(i, new EventScript.Step(EventProgram.SLEEP, 0L));
+                    if (fails(property, candidate)) {
+                        smallest = candidate;
+                        shrunk = true;
+                    }
+                }
+            }
+        }
+        return smallest;
+    }
+
+    private EventScript<T> check(final long seed, final long count, final boolean valid,
+                                 final Func1<? super EventScript<T>, Boolean> property){
+        final AtomicLong firstFailure = new AtomicLong(Long.MAX_VALUE);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Check(seed, valid, property, firstFailure, 0, count));
+        } finally {
+            pool.shutdown();
+        }
+
+        final long index = firstFailure.get();
+        if (index == Long.MAX_VALUE) {
+            return null;
+        }
+        return shrink(script(seed, index, valid), property);
+    }
+
+    private EventScript<T> script(final long seed, final long index, final boolean valid){
+        final long scriptSeed = seed + index * GOLDEN_GAMMA;
+        return valid ? valid(scriptSeed) : invalid(scriptSeed);
+    }
+
+    private int length(final Random random){
+        final int length = lengths.call(random);
+        if (length < 0) {
+            throw new IllegalArgumentException("The length distribution returned a negative length " + length);
+        }
+        return length;
+    }
+
+    private static Func1<Random, Integer> uniform(final int maxLength){
+        return new Func1<Random, Integer>() {
+            @Override
+            public Integer call(final Random random) {
+                return random.nextInt(maxLength + 1);
+            }
+        };
+    }
+
+    private EventScript.Step nextStep(final Random random){
+        if (random.nextDouble() < sleepChance) {
+            final long mills = maxSleepMills == 0 ? 0 : (long) (random.nextDouble() * (maxSleepMills + 1));
+            return new EventScript.Step(EventProgram.SLEEP, mills);
+        }
+        return new EventScript.Step(EventProgram.EMIT, items.call(random));
+    }
+
+    private EventScript.Step terminal(final Random random){
+        if (random.nextDouble() < errorChance) {
+            return new EventScript.Step(EventProgram.ERROR, new ScriptedException());
+        }
+        return new EventScript.Step(EventProgram.COMPLETE, null);
+    }
+
+    private static boolean continuesAfterTerminal(final List<EventScript.Step> steps){
+        for (int i = 0; i < steps.size() - 1; i++) {
+            if (steps.get(i).isTerminal()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> boolean fails(final Func1<? super EventScript<T>, Boolean> property, final EventScript<T> script){
+        try {
+            return !Boolean.TRUE.equals(property.call(script));
+        } catch (final Throwable e) {
+            return true;
+        }
+    }
+
+    /**
+     * Checks a range of scripts, splitting it up until it's small enough to check on one thread
+     * Scripts after the lowest failure found so far are skipped, they can't be the one that is reported
+     */
+    private final class Check extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final boolean valid;
+        private final Func1<? super EventScript<T>, Boolean> property;
+        private final AtomicLong firstFailure;
+        private final long from;
+        private final long to;
+
+        private Check(final long seed, final boolean valid, final Func1<? super EventScript<T>, Boolean> property,
+                      final AtomicLong firstFailure, final long from, final long to){
+            this.seed = seed;
+            this.valid = valid;
+            this.property = property;
+            this.firstFailure = firstFailure;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                final long middle = from + (to - from) / 2;
+                invokeAll(new Check(seed, valid, property, firstFailure, from, middle),
+                        new Check(seed, valid, property, firstFailure, middle, to));
+                return;
+            }
+
+            for (long index = from; index < to && index < firstFailure.get(); index++) {
+                if (fails(property, script(seed, index, valid))) {
+                    while (true) {
+                        final long current = firstFailure.get();
+                        if (index >= current || firstFailure.compareAndSet(current, index)) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.rxc;
+
+/**
+ * The error that scripts made by a ScriptGenerator terminate with
+ */
+public class ScriptedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a ScriptedException
+     */
+    public ScriptedException(){
+        super("Scripted error");
+    }
+}
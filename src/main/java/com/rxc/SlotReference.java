@@ -0,0 +1,108 @@
+package com.rxc;
+
+import rx.Subscription;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * A reference to a Subscription that remembers which SlotTable it belongs to and which slot of it it lives in,
+ * so it can be removed from the table without searching for it
+ *
+ * References are weak unless they are created through strong(), in which case the Subscription is
+ * held on to until the reference is cleared. References created through scope() point at a child table instead
+ * of a Subscription, and reference a token that only the child's DisposeBag and it's own children hold on to.
+ * The token is held strongly while the child holds anything, and weakly otherwise, so a child that is dropped
+ * is queued like a dead subscription once it's been emptied
+ *
+ * Strong references that nothing outside of their table knows about are recyclable, once disposed their table
+ * can hand them out again for another Subscription instead of allocating a new reference
+ */
+final class SlotReference extends WeakReference<Subscription> {
+    final SlotTable owner;
+
+    final SlotTable child;
+
+    int slot = -1;
+
+    Throwable allocationSite;
+
+    boolean recyclable;
+
+    boolean pinned;
+
+    private Subscription strong;
+
+    SlotReference(final Subscription subscription, final ReferenceQueue<? super Subscription> queue, final SlotTable owner) {
+        this(subscription, queue, owner, null);
+    }
+
+    private SlotReference(final Subscription subscription, final ReferenceQueue<? super Subscription> queue,
+                          final SlotTable owner, final SlotTable child) {
+        super(subscription, queue);
+        this.owner = owner;
+        this.child = child;
+    }
+
+    /**
+     * Creates a reference that strongly holds on to the given Subscription
+     * @param subscription The subscription to reference
+     * @param owner The table the reference is going to be stored in
+     * @return The reference
+     */
+    static SlotReference strong(final Subscription subscription, final SlotTable owner){
+        final SlotReference ref = new SlotReference(null, null, owner);
+        ref.strong = subscription;
+        return ref;
+    }
+
+    /**
+     * Creates a reference to a child scope of a table
+     * @param child The child scope
+     * @param token The subscription that is only held on to by whatever owns the child scope
+     * @param queue The queue the reference is put on once the token is garbage collected
+     * @param owner The table the reference is going to be stored in
+     * @return The reference
+     */
+    static SlotReference scope(final SlotTable child, final Subscription token,
+                               final ReferenceQueue<? super Subscription> queue, final SlotTable owner){
+        final SlotReference ref = new SlotReference(token, queue, owner, child);
+        child.scope = ref;
+        return ref;
+    }
+
+    /**
+     * Points a recycled strong reference at a new Subscription
+     * @param subscription The subscription to reference
+     */
+    void reuse(final Subscription subscription){
+        strong = subscription;
+        allocationSite = null;
+    }
+
+    /**
+     * Holds on to the referenced Subscription strongly, until unpin() is called
+     */
+    void pin(){
+        strong = super.get();
+    }
+
+    /**
+     * Goes back to weakly referencing the Subscription
+     */
+    void unpin(){
+        strong = null;
+    }
+
+    @Override
+    public Subscription get() {
+        final Subscription subscription = strong;
+        return subscription != null ? subscription : super.get();
+    }
+
+    @Override
+    public void clear() {
+        strong = null;
+        super.clear();
+    }
+}
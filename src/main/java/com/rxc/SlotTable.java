@@ -0,0 +1,397 @@
+package com.rxc;
+
+import rx.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The storage behind DisposeBag
+ *
+ * References are kept in an array and every reference knows the index it was stored at. Freed indexes are kept
+ * on a stack and handed out again by later adds, so adding and removing a reference are both O(1),
+ * and disposing everything is a single linear scan of the array
+ *
+ * A reference can also point at another SlotTable, a child scope. Disposing a table disposes the contents of every
+ * scope beneath it in the same scan, but leaves the scopes themselves in place so they can keep being used.
+ * Child scopes share the lock of the table they were created under. A scope is pinned, it's reference in the parent
+ * holding on to it strongly, for as long as it or any scope beneath it holds a reference, so a scope that was dropped
+ * while it still held subscriptions keeps being disposed along with it's parent
+ *
+ * Recyclable strong references are pooled once they are disposed and handed out again by strongReference(),
+ * so once a table has grown to it's working size adding and disposing strong references allocates nothing.
+ * The pool holds at most MAX_RECYCLED references, a table that once peaked above that doesn't keep the peak's
+ * references around forever. The array disposeAll() detaches references into is reused the same way, but only kept
+ * while it's within MAX_RECYCLED or a few times the size of the last disposal, so a peak doesn't pin it either
+ *
+ * SlotTable is not thread safe, callers are expected to hold the table's lock while using it
+ */
+final class SlotTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    static final int MAX_RECYCLED = 1024;
+
+    private static final int MAX_SNAPSHOT_SLACK = 4;
+
+    final Object lock;
+
+    final Object key;
+
+    private SlotReference[] slots = new SlotReference[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int end;
+    private int childCount;
+    private int pinnedChildCount;
+
+    SlotReference scope;
+
+    private SlotReference[] recycled = new SlotReference[0];
+    private int recycledCount;
+
+    private SlotReference[] snapshot = new SlotReference[0];
+
+    /**
+     * Creates a table that is guarded by it's own monitor
+     */
+    SlotTable(){
+        this.lock = this;
+        this.key = null;
+    }
+
+    /**
+     * Creates a table that is guarded by the given lock
+     * @param lock The lock that guards the table
+     */
+    SlotTable(final Object lock){
+        this(lock, null);
+    }
+
+    /**
+     * Creates a table that is guarded by the given lock
+     * @param lock The lock that guards the table
+     * @param key The key the table is stored under by whatever owns it
+     */
+    SlotTable(final Object lock, final Object key){
+        this.lock = lock;
+        this.key = key;
+    }
+
+    /**
+     * Stores a reference in the first free slot
+     * @param ref The reference to store
+     */
+    void add(final SlotReference ref){
+        final int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (end == slots.length) {
+                grow();
+            }
+            slot = end++;
+        }
+
+        slots[slot] = ref;
+        ref.slot = slot;
+        if (ref.child != null) {
+            childCount++;
+            if (ref.pinned) {
+                pinnedChildCount++;
+            }
+        }
+        updatePin();
+    }
+
+    /**
+     * Removes a reference from the table
+     * @param ref The reference to remove
+     * @return True if the reference was stored in this table and has been removed, false otherwise
+     */
+    boolean remove(final SlotReference ref){
+        final int slot = ref.slot;
+        if (slot < 0 || slot >= end || slots[slot] != ref) {
+            return false;
+        }
+
+        slots[slot] = null;
+        ref.slot = -1;
+        freeSlots[freeCount++] = slot;
+        if (ref.child != null) {
+            childCount--;
+            if (ref.pinned) {
+                pinnedChildCount--;
+            }
+        }
+        updatePin();
+        return true;
+    }
+
+    /**
+     * Unsubscribes every subscription in the table and the scopes beneath it that is still subscribed,
+     * and empties them all, leaving only the scopes themselves behind
+     * The references are taken out of the tables before anything is unsubscribed, so a subscription that is added
+     * from inside an unsubscribe() lands in the emptied table and is kept for the next disposal
+     * An attempt is made on every subscription, even if some of them throw
+     * @param errors The list that any thrown errors are added to, or null to create one if anything throws
+     * @return The list of thrown errors, or null if nothing threw and no list was given
+     */
+    List<Throwable> disposeAll(List<Throwable> errors){
+        // A disposeAll() from inside an unsubscribe() finds no snapshot and allocates it's own
+        SlotReference[] detached = snapshot;
+        snapshot = null;
+        final int size = subtreeSize();
+        if (detached == null || detached.length < size) {
+            detached = new SlotReference[Math.max(size, detached == null ? 0 : detached.length * 2)];
+        }
+        final int count = detachInto(detached, 0);
+
+        for (int i = 0; i < count; i++) {
+            final SlotReference ref = detached[i];
+            detached[i] = null;
+
+            final Throwable error = dispose(ref);
+            if (error != null) {
+                if (errors == null) {
+                    errors = new ArrayList<>();
+                }
+                errors.add(error);
+            }
+
+            if (ref.recyclable) {
+                ref.owner.recycle(ref);
+            }
+        }
+
+        snapshot = detached.length <= MAX_RECYCLED || detached.length <= count * MAX_SNAPSHOT_SLACK ? detached : null;
+        return errors;
+    }
+
+    /**
+     * Creates a recyclable reference that strongly holds on to the given Subscription, reusing a disposed one if possible
+     * The reference must not be handed to anything outside of the table
+     * @param subscription The subscription to reference
+     * @return The reference
+     */
+    SlotReference strongReference(final Subscription subscription){
+        if (recycledCount > 0) {
+            final SlotReference ref = recycled[--recycledCount];
+            recycled[recycledCount] = null;
+            ref.reuse(subscription);
+            return ref;
+        }
+
+        final SlotReference ref = SlotReference.strong(subscription, this);
+        ref.recyclable = true;
+        return ref;
+    }
+
+    /**
+     * Hands every reference in the table and the scopes beneath it over to the caller, leaving only the scopes behind
+     * @return The references that were stored in the table and it's scopes
+     */
+    SlotReference[] detach(){
+        final SlotReference[] detached = new SlotReference[subtreeSize()];
+        detachInto(detached, 0);
+        return detached;
+    }
+
+    /**
+     * Unsubscribes every subscription in a range of references that is still subscribed
+     * An attempt is made on every subscription, even if some of them throw
+     * @param refs The references, any of which may be null
+     * @param from The index of the first reference to dispose
+     * @param to The index after the last reference to dispose
+     * @param errors The collection that any thrown errors are added to
+     */
+    static void dispose(final SlotReference[] refs, final int from, final int to, final Collection<Throwable> errors){
+        for (int i = from; i < to; i++) {
+            final SlotReference ref = refs[i];
+            if (ref == null) {
+                continue;
+            }
+
+            final Throwable error = dispose(ref);
+            if (error != null) {
+                errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * @return The length of the array kept for the next disposeAll() to detach references into
+     */
+    int snapshotCapacity(){
+        return snapshot != null ? snapshot.length : 0;
+    }
+
+    /**
+     * @return The number of references currently stored in the table, counting each child scope as one reference
+     */
+    int size(){
+        return end - freeCount;
+    }
+
+    /**
+     * @return The number of subscription references stored in the table and all the scopes beneath it
+     */
+    int subtreeSize(){
+        int size = size() - childCount;
+        if (childCount > 0) {
+            for (int i = 0; i < end; i++) {
+                final SlotReference ref = slots[i];
+                if (ref != null && ref.child != null) {
+                    size += ref.child.subtreeSize();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return The number of subscription references in the table whose subscriptions have been garbage collected,
+     * but that haven't been cleaned up yet
+     */
+    int clearedCount(){
+        int cleared = 0;
+        for (int i = 0; i < end; i++) {
+            final SlotReference ref = slots[i];
+            if (ref != null && ref.child == null && ref.get() == null) {
+                cleared++;
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Counts the subscriptions in the table and all the scopes beneath it that are still subscribed
+     * @param allocationSites The list that the allocation sites recorded for those subscriptions are added to
+     * @return The number of subscriptions that are still subscribed
+     */
+    int collectLive(final List<Throwable> allocationSites){
+        int live = 0;
+        for (int i = 0; i < end; i++) {
+            final SlotReference ref = slots[i];
+            if (ref == null) {
+                continue;
+            }
+
+            if (ref.child != null) {
+                live += ref.child.collectLive(allocationSites);
+                continue;
+            }
+
+            final Subscription subscription = ref.get();
+            if (subscription != null && !subscription.isUnsubscribed()) {
+                live++;
+                if (ref.allocationSite != null) {
+                    allocationSites.add(ref.allocationSite);
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Unsubscribes the subscription a reference points at if it is still subscribed, and clears the reference
+     * @param ref The reference to dispose
+     * @return The error thrown while unsubscribing, or null if nothing threw
+     */
+    static Throwable dispose(final SlotReference ref){
+        try {
+            final Subscription subscription = ref.get();
+
+            if (subscription != null && !subscription.isUnsubscribed()) {
+                subscription.unsubscribe();
+            }
+            ref.clear();
+            return null;
+        } catch (final Throwable t){
+            return t;
+        }
+    }
+
+    /**
+     * Pins or unpins the scope this table is the child of, if holding references has started or stopped
+     * The parent is updated in turn, so every scope above a pinned scope is pinned as well
+     */
+    private void updatePin(){
+        final boolean pinned = size() > childCount || pinnedChildCount > 0;
+        if (scope == null || scope.pinned == pinned) {
+            return;
+        }
+
+        scope.pinned = pinned;
+        if (pinned) {
+            scope.pin();
+        } else {
+            scope.unpin();
+        }
+
+        // A closed scope isn't stored in it's parent anymore, so the parent has nothing to keep track of
+        if (scope.slot >= 0) {
+            scope.owner.pinnedChildCount += pinned ? 1 : -1;
+            scope.owner.updatePin();
+        }
+    }
+
+    private void recycle(final SlotReference ref){
+        ref.clear();
+        if (recycledCount == MAX_RECYCLED) {
+            return;
+        }
+        if (recycledCount == recycled.length) {
+            recycled = Arrays.copyOf(recycled, Math.min(MAX_RECYCLED, Math.max(INITIAL_CAPACITY, recycledCount * 2)));
+        }
+        recycled[recycledCount++] = ref;
+    }
+
+    private int detachInto(final SlotReference[] detached, int at){
+        for (int i = 0; i < end; i++) {
+            final SlotReference ref = slots[i];
+            if (ref == null) {
+                continue;
+            }
+
+            if (ref.child != null) {
+                at = ref.child.detachInto(detached, at);
+            } else {
+                detached[at++] = ref;
+            }
+        }
+
+        retainChildren();
+        return at;
+    }
+
+    private void retainChildren(){
+        int retained = 0;
+        for (int i = 0; i < end; i++) {
+            final SlotReference ref = slots[i];
+            if (ref == null) {
+                continue;
+            }
+
+            slots[i] = null;
+            if (ref.child != null) {
+                slots[retained] = ref;
+                ref.slot = retained++;
+            } else {
+                ref.slot = -1;
+            }
+        }
+
+        end = retained;
+        freeCount = 0;
+        childCount = retained;
+        updatePin();
+    }
+
+    private void grow(){
+        final int capacity = slots.length * 2;
+        slots = Arrays.copyOf(slots, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
@@ -0,0 +1,116 @@
+package com.rxc;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a run of an OperatorStressHarness went
+ */
+public final class StressReport {
+    private final long iterations;
+    private final long itemsDelivered;
+    private final long unfinishedScripts;
+    private final long elapsedNanos;
+    private final Map<ContractViolation, Long> violations;
+    private final List<Throwable> thrown;
+
+    /**
+     * Creates a StressReport
+     * @param iterations The number of iterations that ran
+     * @param itemsDelivered The number of items the operator gave it's Subscribers
+     * @param unfinishedScripts The number of scripts that were still running when the harness stopped waiting for them
+     * @param elapsedNanos How long the run took in nanoseconds
+     * @param violations The number of times every kind of violation was detected, kinds that weren't detected may be left out
+     * @param thrown Some of the errors the operator threw
+     */
+    public StressReport(final long iterations, final long itemsDelivered, final long unfinishedScripts,
+                        final long elapsedNanos, final Map<ContractViolation, Long> violations,
+                        final List<Throwable> thrown){
+        this.iterations = iterations;
+        this.itemsDelivered = itemsDelivered;
+        this.unfinishedScripts = unfinishedScripts;
+        this.elapsedNanos = elapsedNanos;
+        this.violations = new EnumMap<>(ContractViolation.class);
+        this.violations.putAll(violations);
+        this.thrown = Collections.unmodifiableList(thrown);
+    }
+
+    /**
+     * @return The number of iterations that ran
+     */
+    public long getIterations(){
+        return iterations;
+    }
+
+    /**
+     * @return The number of items the operator gave it's Subscribers
+     */
+    public long getItemsDelivered(){
+        return itemsDelivered;
+    }
+
+    /**
+     * @return The number of scripts that were still running when the harness stopped waiting for them,
+     * anything they did after that isn't part of the report
+     */
+    public long getUnfinishedScripts(){
+        return unfinishedScripts;
+    }
+
+    /**
+     * @return How long the run took in nanoseconds
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The number of items the operator gave it's Subscribers per second
+     */
+    public double getThroughput(){
+        if (elapsedNanos <= 0) {
+            return itemsDelivered > 0 ? Double.POSITIVE_INFINITY : 0;
+        }
+        return itemsDelivered * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @param violation The kind of violation
+     * @return The number of times the given kind of violation was detected
+     */
+    public long getViolations(final ContractViolation violation){
+        final Long count = violations.get(violation);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @return The number of violations of any kind that were detected
+     */
+    public long getTotalViolations(){
+        long total = 0;
+        for (final Long count : violations.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return Some of the errors the operator threw, to help track down OPERATOR_THREW violations
+     */
+    public List<Throwable> getThrown(){
+        return thrown;
+    }
+
+    @Override
+    public String toString() {
+        return "StressReport{iterations=" + iterations
+                + ", itemsDelivered=" + itemsDelivered
+                + ", unfinishedScripts=" + unfinishedScripts
+                + ", elapsedNanos=" + elapsedNanos
+                + ", throughput=" + getThroughput()
+                + ", violations=" + violations + "}";
+    }
+}
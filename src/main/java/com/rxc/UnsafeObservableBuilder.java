@@ -2,11 +2,11 @@ package com.rxc;
 
 import rx.Notification;
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
 import rx.functions.Action1;
-
-import java.util.LinkedList;
-import java.util.List;
+import rx.functions.Func0;
+import rx.functions.Func1;
 
 /**
  * A builder to build up an Observable that performs a set of events on it's Subscribers
@@ -19,10 +19,41 @@ import java.util.List;
  * You should not be using this unless you purposefully are violating the RX Observable contract, or are testing odd situations
  * Instead use ObservableBuilder, which enforces a proper RX Observable contract
  *
+ * build() compiles the events given so far into an immutable program, so events added after building
+ * don't affect Observables that were already built, and the built Observable can be subscribed to from any number
+ * of threads at once. fork() creates a copy of the builder that can be extended separately, forks share the events
+ * they have in common rather than copying them, so deriving many variants of a script is cheap.
+ * A single builder should only be extended from one thread at a time, but separate forks can be extended from
+ * different threads
+ *
  * @param <T> The class for the Observable
  */
 public final class UnsafeObservableBuilder<T> {
-    private final List<Action1<Subscriber<? super T>>> events = new LinkedList<>();
+    private EventSegment segment;
+    private int segmentLength;
+    private int length;
+
+    private boolean backpressured;
+
+    private Scheduler scheduler;
+
+    private boolean cancellable;
+
+    /**
+     * Creates an UnsafeObservableBuilder with no events
+     */
+    public UnsafeObservableBuilder(){
+        segment = new EventSegment(null, 0);
+    }
+
+    private UnsafeObservableBuilder(final UnsafeObservableBuilder<T> builder){
+        segment = builder.segment;
+        segmentLength = builder.segmentLength;
+        length = builder.length;
+        backpressured = builder.backpressured;
+        scheduler = builder.scheduler;
+        cancellable = builder.cancellable;
+    }
 
     /**
      * Adds a new event to the observable that emits the given item
@@ -30,13 +61,121 @@ public final class UnsafeObservableBuilder<T> {
      * @return The builder to build the rest of the observable with
      */
     public UnsafeObservableBuilder<T> emit(final T item){
-        events.add(new Action1<Subscriber<? super T>>() {
-            @Override
-            public void call(final Subscriber<? super T> tSubscriber) {
-                tSubscriber.onNext(item);
-            }
-        });
-        return this;
+        return append(EventProgram.EMIT, item);
+    }
+
+    /**
+     * Adds a new event to the observable that emits every item of the given Iterable
+     * The Iterable is iterated anew by every subscription, as the items are emitted
+     * @param items The items to emit
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> emitAll(final Iterable<? extends T> items){
+        return append(EventProgram.EMIT_ALL, items);
+    }
+
+    /**
+     * Adds a new event to the observable that emits every item of the given array
+     * The items are copied out of the array, so changes made to it later are not seen by the Observable
+     * @param items The items to emit
+     * @return The builder to build the rest of the observable with
+     */
+    @SafeVarargs
+    public final UnsafeObservableBuilder<T> emitArray(final T... items){
+        // Copied element by element, the varargs array itself never leaves the method
+        final Object[] copy = new Object[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copy[i] = items[i];
+        }
+        return emitCopy(copy);
+    }
+
+    /**
+     * Adds a new event to the observable that emits every item of an array the builder can keep
+     * @param items The items to emit, which must not be changed afterwards
+     * @return The builder to build the rest of the observable with
+     */
+    UnsafeObservableBuilder<T> emitCopy(final Object[] items){
+        return append(EventProgram.EMIT_ARRAY, items);
+    }
+
+    /**
+     * Adds a new event to the observable that emits an item for every int in a range,
+     * the items are created by the mapper as they are emitted
+     * @param start The first int of the range
+     * @param count The number of ints in the range
+     * @param mapper The function that turns an int from the range into the item to emit
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> emitRange(final int start, final int count, final Func1<Integer, ? extends T> mapper){
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        return append(EventProgram.EMIT_RANGE, new EventProgram.Range<T>(start, count, mapper));
+    }
+
+    /**
+     * Adds a new event to the observable that emits the given number of items, each one created by the generator
+     * as it is emitted
+     * @param count The number of items to emit
+     * @param generator The function that creates each item
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> generate(final long count, final Func0<? extends T> generator){
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        return append(EventProgram.GENERATE, new EventProgram.Generator<T>(count, generator));
+    }
+
+    /**
+     * Adds a new event to the observable that emits items at a steady rate, as described by the LoadGenerator
+     *
+     * Without a Scheduler to sleep on the subscribing thread waits for every item, precise to well under a millisecond.
+     * With one every wait is scheduled on the Scheduler instead, which can only tell the time to the millisecond,
+     * so items that are due less than a millisecond apart are emitted together
+     * @param generator The LoadGenerator describing the items and the rate to emit them at
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> emitAtRate(final LoadGenerator<? extends T> generator){
+        return append(EventProgram.EMIT_AT_RATE, generator);
+    }
+
+    /**
+     * Adds a new event to the observable that replays every notification in the given Recording,
+     * at the same pace they were recorded at scaled by the speed of the Recording
+     * The recording is read as it is replayed, a notification is only deserialized once it is due
+     * @param recording The recording to replay
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> replay(final Recording<? extends T> recording){
+        return append(EventProgram.REPLAY, recording);
+    }
+
+    /**
+     * Adds a block of events to the observable that performs all the events of the given builder the given number of times
+     * The events are copied out of the given builder once, no matter how many times they are repeated,
+     * so later changes to that builder don't affect this one
+     * @param times The number of times to perform the events
+     * @param block The builder holding the events to repeat
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> repeat(final long times, final UnsafeObservableBuilder<T> block){
+        if (times < 0) {
+            throw new IllegalArgumentException("times must not be negative");
+        }
+        return appendBlock(times, block);
+    }
+
+    /**
+     * Adds a block of events to the observable that performs all the events of the given builder over and over,
+     * until the Subscriber unsubscribes
+     * The events are copied out of the given builder, so later changes to that builder don't affect this one
+     * @param block The builder holding the events to loop over
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> loop(final UnsafeObservableBuilder<T> block){
+        return appendBlock(-1, block);
     }
 
     /**
@@ -46,13 +185,7 @@ public final class UnsafeObservableBuilder<T> {
      * @return The builder to build the rest of the observable with
      */
     public UnsafeObservableBuilder<T> error(final Throwable error){
-        events.add(new Action1<Subscriber<? super T>>() {
-            @Override
-            public void call(final Subscriber<? super T> tSubscriber) {
-                tSubscriber.onError(error);
-            }
-        });
-        return this;
+        return append(EventProgram.ERROR, error);
     }
 
     /**
@@ -61,13 +194,7 @@ public final class UnsafeObservableBuilder<T> {
      * @return The Observable that will emit the defined events when subscribed to
      */
     public UnsafeObservableBuilder<T> complete(){
-        events.add(new Action1<Subscriber<? super T>>() {
-            @Override
-            public void call(final Subscriber<? super T> tSubscriber) {
-                tSubscriber.onCompleted();
-            }
-        });
-        return this;
+        return append(EventProgram.COMPLETE, null);
     }
 
     /**
@@ -76,17 +203,7 @@ public final class UnsafeObservableBuilder<T> {
      * @return The builder to build the rest of the observable with
      */
     public UnsafeObservableBuilder<T> sleep(final long mills){
-        events.add(new Action1<Subscriber<? super T>>() {
-            @Override
-            public void call(final Subscriber<? super T> tSubscriber) {
-                try {
-                    Thread.sleep(mills);
-                } catch (final InterruptedException e) {
-                   tSubscriber.onError(e);
-                }
-            }
-        });
-        return this;
+        return append(EventProgram.SLEEP, mills);
     }
 
     /**
@@ -95,13 +212,7 @@ public final class UnsafeObservableBuilder<T> {
      * @return The builder to build the rest of the observable with
      */
     public UnsafeObservableBuilder<T> notify(final Notification<T> notification){
-        events.add(new Action1<Subscriber<? super T>>() {
-            @Override
-            public void call(final Subscriber<? super T> subscriber) {
-                notification.accept(subscriber);
-            }
-        });
-        return this;
+        return append(EventProgram.NOTIFY, notification);
     }
 
     /**
@@ -110,8 +221,19 @@ public final class UnsafeObservableBuilder<T> {
      * @return The builder to build the rest of the observable with
      */
     public UnsafeObservableBuilder<T> perform(final Action1<Subscriber<? super T>> action){
-        events.add(action);
-        return this;
+        return append(EventProgram.PERFORM_ACTION, action);
+    }
+
+    /**
+     * Adds a new event to the observable that moves all further events onto a Worker of the given Scheduler
+     * The events keep their order, the Worker picks up where the previous thread left off. Every subscription uses
+     * a single Worker per Scheduler, so hopping back to a Scheduler carries on on the same Worker, and sleeps after
+     * the hop are scheduled on it's Worker rather than blocking it
+     * @param scheduler The scheduler to run the further events on
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> on(final Scheduler scheduler){
+        return append(EventProgram.HOP, scheduler);
     }
 
     /**
@@ -120,27 +242,135 @@ public final class UnsafeObservableBuilder<T> {
      * @return The builder to build the rest of the observable with
      */
     public UnsafeObservableBuilder<T> perform(final Runnable runnable){
-        events.add(new Action1<Subscriber<? super T>>() {
-            @Override
-            public void call(final Subscriber<? super T> subscriber) {
-                runnable.run();
-            }
-        });
+        return append(EventProgram.PERFORM_RUNNABLE, runnable);
+    }
+
+    /**
+     * Makes Observables built by the builder respect backpressure
+     * A backpressured Observable only emits as many items as it's Subscriber has requested, once it runs out of
+     * requested items it pauses right before the next emission and carries on from there when more items are requested.
+     * Every other event is still performed in order as the Observable runs, items emitted by perform() events
+     * don't count against the requested items
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> backpressured(){
+        backpressured = true;
+        return this;
+    }
+
+    /**
+     * Makes Observables built by the builder sleep on the given Scheduler rather than blocking the subscribing thread
+     * Every sleep schedules the rest of the events on a Worker of the Scheduler to run once the sleep is over,
+     * so events after a sleep are performed on the Scheduler. Unsubscribing cancels any sleep in progress
+     * @param scheduler The scheduler to sleep on
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> sleepOn(final Scheduler scheduler){
+        this.scheduler = scheduler;
         return this;
     }
 
+    /**
+     * Makes Observables built by the builder stop performing events as soon as their Subscriber unsubscribes
+     * The Observable checks whether the Subscriber has unsubscribed before every event, and before every item of
+     * a bulk emission. Unsubscribing also cuts short any sleep the Observable is in the middle of, whether it's
+     * sleeping on a Scheduler or not
+     * @return The builder to build the rest of the observable with
+     */
+    public UnsafeObservableBuilder<T> cancellable(){
+        cancellable = true;
+        return this;
+    }
+
+    /**
+     * Creates a new builder holding all the events and settings of this one, that can be extended separately
+     * The events are shared between the builders rather than copied, so forking is constant time no matter how
+     * many events the builder has
+     * @return The new builder
+     */
+    public UnsafeObservableBuilder<T> fork(){
+        return new UnsafeObservableBuilder<>(this);
+    }
+
     /**
      * Returns an Observable the performs all event's given to the builder when subscribed to
      * @return The Observable
      */
     public Observable<T> build(){
-        return Observable.create(new Observable.OnSubscribe<T>() {
-            @Override
-            public void call(final Subscriber<? super T> subscriber) {
-                for(final Action1<Subscriber<? super T>> event : events){
-                    event.call(subscriber);
-                }
+        return build(scheduler);
+    }
+
+    /**
+     * Returns an Observable the performs all event's given to the builder when subscribed to, sleeping on the given Scheduler
+     *
+     * Building with a TestScheduler runs scripts in virtual time, every sleep waits for the TestScheduler to be advanced
+     * past it instead of waiting on the clock, and events are performed in the same order they would be in real time
+     * @param scheduler The scheduler to sleep on
+     * @return The Observable
+     * @see #sleepOn(Scheduler)
+     */
+    public Observable<T> build(final Scheduler scheduler){
+        final byte[] opcodes = new byte[length];
+        final Object[] operands = new Object[length];
+        copyTo(opcodes, operands);
+        return Observable.create(new EventProgram<T>(opcodes, operands, backpressured, scheduler, cancellable));
+    }
+
+    /**
+     * @return True if the builder has any events that terminate the Subscriber
+     */
+    boolean hasTerminalEvents(){
+        final byte[] opcodes = new byte[length];
+        final Object[] operands = new Object[length];
+        copyTo(opcodes, operands);
+
+        for (int i = 0; i < length; i++) {
+            if (opcodes[i] == EventProgram.ERROR || opcodes[i] == EventProgram.COMPLETE) {
+                return true;
+            }
+            if (opcodes[i] == EventProgram.NOTIFY && !((Notification<?>) operands[i]).isOnNext()) {
+                return true;
             }
-        });
+            if (opcodes[i] == EventProgram.REPLAY && ((Recording<?>) operands[i]).isTerminated()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private UnsafeObservableBuilder<T> appendBlock(final long times, final UnsafeObservableBuilder<T> block){
+        final int blockLength = block.length;
+        final byte[] blockOpcodes = new byte[blockLength];
+        final Object[] blockOperands = new Object[blockLength];
+        block.copyTo(blockOpcodes, blockOperands);
+
+        final EventProgram.Block operand = new EventProgram.Block(times, blockLength);
+        append(EventProgram.REPEAT, operand);
+        for (int i = 0; i < blockLength; i++) {
+            append(blockOpcodes[i], blockOperands[i]);
+        }
+        return append(EventProgram.END_REPEAT, operand);
+    }
+
+    private UnsafeObservableBuilder<T> append(final byte opcode, final Object operand){
+        if (!segment.append(segmentLength, opcode, operand)) {
+            segment = new EventSegment(segment, segmentLength);
+            segmentLength = 0;
+            segment.append(0, opcode, operand);
+        }
+
+        segmentLength++;
+        length++;
+        return this;
+    }
+
+    private void copyTo(final byte[] opcodes, final Object[] operands){
+        int at = length;
+        int count = segmentLength;
+        for (EventSegment current = segment; current != null; current = current.parent) {
+            at -= count;
+            current.copyTo(count, opcodes, operands, at);
+            count = current.parentLength;
+        }
     }
 }
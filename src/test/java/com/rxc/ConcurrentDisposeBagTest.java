@@ -0,0 +1,173 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Subscription;
+import rx.exceptions.CompositeException;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentDisposeBagTest {
+
+    @Test
+    public void norm(){
+        final List<Subscription> subscriptionList = new ArrayList<>(10);
+
+        final ConcurrentDisposeBag disposeBag = new ConcurrentDisposeBag();
+
+        for (int i = 0; i < 10; i++) {
+            final Subscription empty = Subscriptions.empty();
+            subscriptionList.add(empty);
+            disposeBag.add(empty);
+        }
+
+        disposeBag.disposeAll();
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void addAll(){
+        final List<Subscription> subscriptionList = new ArrayList<>(10);
+
+        final ConcurrentDisposeBag disposeBag = new ConcurrentDisposeBag();
+
+        for (int i = 0; i < 10; i++) {
+            subscriptionList.add(Subscriptions.empty());
+        }
+        disposeBag.addAll(subscriptionList);
+
+        disposeBag.disposeAll();
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+    }
+
+    @Test
+    public void unsubcribesAll_evenWithExceptions(){
+        final ConcurrentDisposeBag disposeBag = new ConcurrentDisposeBag();
+        final Subscription after = Subscriptions.empty();
+
+        for (int i = 0; i < 3; i++) {
+            disposeBag.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    throw new RuntimeException();
+                }
+            }));
+        }
+        disposeBag.add(after);
+
+        try {
+            disposeBag.disposeAll();
+            fail("Did not throw");
+        } catch (final CompositeException e){
+            assertEquals(3, e.getExceptions().size());
+        }
+
+        assertTrue(after.isUnsubscribed());
+    }
+
+    @Test
+    public void concurrentAdds() throws Exception {
+        final ConcurrentDisposeBag disposeBag = new ConcurrentDisposeBag(4);
+        final int threads = 8;
+        final int perThread = 1000;
+        final List<Subscription> subscriptionList = new ArrayList<>(threads * perThread);
+        for (int i = 0; i < threads * perThread; i++) {
+            subscriptionList.add(Subscriptions.empty());
+        }
+
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final List<Subscription> slice = subscriptionList.subList(t * perThread, (t + 1) * perThread);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (final Subscription subscription : slice) {
+                        disposeBag.add(subscription);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        disposeBag.disposeAll();
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+    }
+
+    @Test
+    public void addsDuringDisposal_landInNextGeneration(){
+        final ConcurrentDisposeBag disposeBag = new ConcurrentDisposeBag();
+        final Subscription late = Subscriptions.empty();
+
+        disposeBag.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                disposeBag.add(late);
+            }
+        }));
+
+        disposeBag.disposeAll();
+        assertFalse(late.isUnsubscribed());
+
+        disposeBag.disposeAll();
+        assertTrue(late.isUnsubscribed());
+    }
+
+    @Test
+    public void slowDisposal_doesNotBlockAdds() throws Exception {
+        final ConcurrentDisposeBag disposeBag = new ConcurrentDisposeBag();
+        final CountDownLatch disposing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        disposeBag.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                disposing.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ignore) {}
+            }
+        }));
+
+        final Thread disposer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                disposeBag.disposeAll();
+            }
+        });
+        disposer.start();
+        assertTrue(disposing.await(10, TimeUnit.SECONDS));
+
+        final CountDownLatch added = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                disposeBag.add(Subscriptions.empty());
+                added.countDown();
+            }
+        }).start();
+
+        assertTrue(added.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        disposer.join();
+    }
+}
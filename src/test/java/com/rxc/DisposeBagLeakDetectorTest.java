@@ -0,0 +1,112 @@
+package com.rxc;
+
+import org.junit.After;
+import org.junit.Test;
+import rx.Subscription;
+import rx.subscriptions.Subscriptions;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DisposeBagLeakDetectorTest {
+
+    private final List<DisposeBagLeak> leaks = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown(){
+        DisposeBagLeakDetector.setSamplingRate(0);
+        DisposeBagLeakDetector.setListener(null);
+    }
+
+    @Test
+    public void reportsDroppedBag() throws Exception {
+        listen(1);
+        final Subscription live = Subscriptions.empty();
+
+        leakBag(live);
+        awaitCollection();
+
+        assertEquals(1, leaks.size());
+        assertEquals(1, leaks.get(0).getLiveCount());
+        assertEquals(1, leaks.get(0).getAllocationSites().size());
+        assertTrue(leaks.get(0).toString().contains("leakBag"));
+    }
+
+    @Test
+    public void ignoresDisposedBag() throws Exception {
+        listen(1);
+        final Subscription live = Subscriptions.empty();
+
+        disposeBag(live);
+        awaitCollection();
+
+        assertEquals(0, leaks.size());
+    }
+
+    @Test
+    public void ignoresDroppedChild() throws Exception {
+        listen(1);
+        final DisposeBag parent = new DisposeBag(ReferencePolicy.STRONG);
+        final Subscription live = Subscriptions.empty();
+
+        parent.child().add(live);
+        awaitCollection();
+
+        assertEquals(0, leaks.size());
+        parent.disposeAll();
+        assertTrue(live.isUnsubscribed());
+    }
+
+    @Test
+    public void disabled_recordsNothing() throws Exception {
+        listen(0);
+        final Subscription live = Subscriptions.empty();
+
+        leakBag(live);
+        awaitCollection();
+
+        assertEquals(0, leaks.size());
+    }
+
+    @Test
+    public void samplingRate(){
+        DisposeBagLeakDetector.setSamplingRate(0.01);
+        assertEquals(0.01, DisposeBagLeakDetector.getSamplingRate(), 0.0001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void samplingRate_invalid(){
+        DisposeBagLeakDetector.setSamplingRate(2);
+    }
+
+    private void listen(final double rate){
+        DisposeBagLeakDetector.setSamplingRate(rate);
+        DisposeBagLeakDetector.setListener(new DisposeBagLeakDetector.Listener() {
+            @Override
+            public void onLeak(final DisposeBagLeak leak) {
+                leaks.add(leak);
+            }
+        });
+    }
+
+    private static void leakBag(final Subscription subscription){
+        new DisposeBag(ReferencePolicy.STRONG).add(subscription);
+    }
+
+    private static void disposeBag(final Subscription subscription){
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        disposeBag.add(subscription);
+        disposeBag.disposeAll();
+    }
+
+    private void awaitCollection() throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            Thread.sleep(10);
+            DisposeBagLeakDetector.reportLeaks();
+        }
+    }
+}
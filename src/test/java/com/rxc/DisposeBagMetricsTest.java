@@ -0,0 +1,128 @@
+package com.rxc;
+
+import org.junit.After;
+import org.junit.Test;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DisposeBagMetricsTest {
+
+    @After
+    public void tearDown() throws Exception {
+        DisposeBagMetricsRegistry.setEnabled(false);
+        DisposeBagJmx.unregister();
+    }
+
+    @Test
+    public void disabled_keepsNoMetrics(){
+        DisposeBagMetricsRegistry.setEnabled(false);
+
+        assertNull(new DisposeBag().getMetrics());
+    }
+
+    @Test
+    public void counts(){
+        DisposeBagMetricsRegistry.setEnabled(true);
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        final DisposeBagMetrics metrics = disposeBag.getMetrics();
+        assertNotNull(metrics);
+
+        final List<Subscription> subscriptionList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            subscriptionList.add(Subscriptions.empty());
+        }
+        disposeBag.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                throw new RuntimeException();
+            }
+        }));
+        disposeBag.addAll(subscriptionList);
+
+        assertEquals(6, metrics.getAddCount());
+        assertEquals(6, metrics.getLiveCount());
+
+        try {
+            disposeBag.disposeAll();
+        } catch (final RuntimeException ignore){}
+
+        assertEquals(0, metrics.getLiveCount());
+        assertEquals(1, metrics.getDisposeCount());
+        assertEquals(6, metrics.getDisposedSubscriptionCount());
+        assertEquals(1, metrics.getDisposeFailureCount());
+        assertEquals(1, metrics.getDisposeLatency().getCount());
+    }
+
+    @Test
+    public void deadReferenceBacklog() throws Exception {
+        DisposeBagMetricsRegistry.setEnabled(true);
+        final DisposeBag disposeBag = new DisposeBag(DisposeBagReaper.onScheduler(Schedulers.test(), 1, TimeUnit.DAYS));
+        final DisposeBagMetrics metrics = disposeBag.getMetrics();
+
+        for (int i = 0; i < 100; i++) {
+            disposeBag.add(Subscriptions.empty());
+        }
+
+        for (int i = 0; i < 50 && metrics.getDeadReferenceBacklog() < 100; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals(100, metrics.getDeadReferenceBacklog());
+        assertEquals(100, metrics.getLiveCount());
+    }
+
+    @Test
+    public void registry_aggregates(){
+        DisposeBagMetricsRegistry.setEnabled(true);
+        final long addsBefore = DisposeBagMetricsRegistry.getAddCount();
+        final long disposesBefore = DisposeBagMetricsRegistry.getDisposeCount();
+
+        final DisposeBag first = new DisposeBag();
+        final DisposeBag second = new DisposeBag();
+        final Subscription subscription = Subscriptions.empty();
+        first.add(subscription);
+        second.add(subscription);
+        first.disposeAll();
+
+        assertEquals(addsBefore + 2, DisposeBagMetricsRegistry.getAddCount());
+        assertEquals(disposesBefore + 1, DisposeBagMetricsRegistry.getDisposeCount());
+        assertTrue(DisposeBagMetricsRegistry.getMetrics().contains(first.getMetrics()));
+        assertTrue(DisposeBagMetricsRegistry.getDisposeLatency().getCount() >= 1);
+    }
+
+    @Test
+    public void jmx() throws Exception {
+        DisposeBagMetricsRegistry.setEnabled(true);
+        DisposeBagJmx.register();
+
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        disposeBag.getMetrics().setName("screen");
+        disposeBag.add(Subscriptions.empty());
+        disposeBag.add(Subscriptions.empty());
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(DisposeBagJmx.OBJECT_NAME);
+
+        assertTrue((Boolean) server.getAttribute(name, "Enabled"));
+        assertTrue((Long) server.getAttribute(name, "LiveCount") >= 2);
+
+        final String[] largest = (String[]) server.invoke(name, "largestBags", new Object[]{1}, new String[]{"int"});
+        assertEquals(1, largest.length);
+        assertTrue(largest[0].startsWith("screen live=2"));
+    }
+}
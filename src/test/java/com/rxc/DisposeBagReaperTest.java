@@ -0,0 +1,116 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Subscription;
+import rx.schedulers.TestScheduler;
+import rx.subscriptions.Subscriptions;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DisposeBagReaperTest {
+
+    @Test
+    public void shared_isShared(){
+        assertSame(DisposeBagReaper.shared(), DisposeBagReaper.shared());
+    }
+
+    @Test
+    public void shared_cleansUpWithoutAdds() throws Exception {
+        final DisposeBag disposeBag = new DisposeBag(DisposeBagReaper.shared());
+
+        for (int i = 0; i < 1000; i++) {
+            disposeBag.add(Subscriptions.empty());
+        }
+
+        for (int i = 0; i < 50 && disposeBag.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void shared_survivesFailedReap() throws Exception {
+        final DisposeBagReaper reaper = DisposeBagReaper.shared();
+        new SlotReference(Subscriptions.empty(), reaper.referenceQueue, null).enqueue();
+        // The queue hands out the latest reference first, so the reaper gets to the broken one before the next is queued
+        Thread.sleep(100);
+
+        final SlotTable table = new SlotTable();
+        final SlotReference ref = new SlotReference(Subscriptions.empty(), reaper.referenceQueue, table);
+        synchronized (table.lock) {
+            table.add(ref);
+        }
+        ref.enqueue();
+
+        for (int i = 0; i < 250 && tableSize(table) > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, tableSize(table));
+    }
+
+    @Test
+    public void onScheduler_cleansUpPeriodically() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        final DisposeBagReaper reaper = DisposeBagReaper.onScheduler(scheduler, 1, TimeUnit.SECONDS);
+        final DisposeBag disposeBag = new DisposeBag(reaper);
+        final Subscription kept = Subscriptions.empty();
+
+        disposeBag.add(kept);
+        for (int i = 0; i < 1000; i++) {
+            disposeBag.add(Subscriptions.empty());
+        }
+
+        System.gc();
+        Thread.sleep(20);
+        assertEquals(1001, disposeBag.size());
+
+        for (int i = 0; i < 50 && disposeBag.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(20);
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, disposeBag.size());
+
+        reaper.shutdown();
+        disposeBag.disposeAll();
+        assertTrue(kept.isUnsubscribed());
+    }
+
+    @Test
+    public void drain_returnsReapedCount() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        final DisposeBagReaper reaper = DisposeBagReaper.onScheduler(scheduler, 1, TimeUnit.SECONDS);
+        final DisposeBag first = new DisposeBag(reaper);
+        final DisposeBag second = new DisposeBag(ReferencePolicy.WEAK, reaper);
+
+        for (int i = 0; i < 10; i++) {
+            first.add(Subscriptions.empty());
+            second.add(Subscriptions.empty());
+        }
+
+        int reaped = 0;
+        for (int i = 0; i < 50 && reaped < 20; i++) {
+            System.gc();
+            Thread.sleep(20);
+            reaped += reaper.drain();
+        }
+
+        assertEquals(20, reaped);
+        assertEquals(0, first.size());
+        assertEquals(0, second.size());
+        reaper.shutdown();
+    }
+
+    private static int tableSize(final SlotTable table){
+        synchronized (table.lock) {
+            return table.size();
+        }
+    }
+}
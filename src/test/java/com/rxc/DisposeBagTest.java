@@ -6,14 +6,39 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import rx.Observable;
 import rx.Subscriber;
 import rx.Subscription;
+import rx.exceptions.CompositeException;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
 import rx.subscriptions.Subscriptions;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -126,4 +151,580 @@ public class DisposeBagTest{
         verify(mockSubscriber,times(3)).unsubscribe();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void dereferenced_areCleanedUp() throws Exception {
+        final DisposeBag disposeBag = new DisposeBag();
+
+        for (int i = 0; i < 10000; i++) {
+            disposeBag.add(Subscriptions.empty());
+        }
+
+        final Subscription kept = Subscriptions.empty();
+        for (int i = 0; i < 50 && disposeBag.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            disposeBag.add(kept);
+        }
+
+        assertTrue(disposeBag.size() < 10000);
+
+        disposeBag.disposeAll();
+        assertTrue(kept.isUnsubscribed());
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void reusable_afterDisposeAll(){
+        final DisposeBag disposeBag = new DisposeBag();
+        final Subscription first = Subscriptions.empty();
+        final Subscription second = Subscriptions.empty();
+
+        disposeBag.add(first);
+        disposeBag.disposeAll();
+        disposeBag.add(second);
+
+        assertTrue(first.isUnsubscribed());
+        assertFalse(second.isUnsubscribed());
+        assertEquals(1, disposeBag.size());
+
+        disposeBag.disposeAll();
+        assertTrue(second.isUnsubscribed());
+    }
+
+    @Test
+    public void parallelDisposeAll() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final DisposeBag disposeBag = new DisposeBag();
+        final List<Subscription> subscriptionList = new ArrayList<Subscription>(20000);
+
+        for (int i = 0; i < 20000; i++) {
+            final Subscription empty = Subscriptions.empty();
+            subscriptionList.add(empty);
+            disposeBag.add(empty);
+        }
+
+        disposeBag.disposeAll(executor, 1000);
+        executor.shutdown();
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void parallelDisposeAll_aggregatesErrors(){
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final DisposeBag disposeBag = new DisposeBag();
+        final List<Subscription> subscriptionList = new ArrayList<Subscription>(5000);
+
+        for (int i = 0; i < 5000; i++) {
+            final Subscription subscription = i % 1000 == 0 ? Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    throw new RuntimeException();
+                }
+            }) : Subscriptions.empty();
+            subscriptionList.add(subscription);
+            disposeBag.add(subscription);
+        }
+
+        try {
+            disposeBag.disposeAll(executor, 1000);
+            fail("Did not throw");
+        } catch (final CompositeException e){
+            assertEquals(5, e.getExceptions().size());
+        }
+        executor.shutdown();
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+    }
+
+    @Test
+    public void parallelDisposeAll_smallBagsStayOnCallingThread(){
+        final DisposeBag disposeBag = new DisposeBag();
+        final Subscription empty = Subscriptions.empty();
+        disposeBag.add(empty);
+
+        disposeBag.disposeAll(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                fail("Small bag was disposed on the executor");
+            }
+        });
+
+        assertTrue(empty.isUnsubscribed());
+    }
+
+    @Test
+    public void parallelDisposeAll_rejectingExecutor(){
+        final DisposeBag disposeBag = new DisposeBag();
+        final List<Subscription> subscriptionList = new ArrayList<Subscription>(5000);
+
+        for (int i = 0; i < 5000; i++) {
+            final Subscription empty = Subscriptions.empty();
+            subscriptionList.add(empty);
+            disposeBag.add(empty);
+        }
+
+        disposeBag.disposeAll(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        }, 1000);
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+    }
+
+    @Test
+    public void strongPolicy_keepsUnreferencedSubscriptions() throws Exception {
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        final AtomicInteger unsubscribed = new AtomicInteger();
+
+        for (int i = 0; i < 10; i++) {
+            disposeBag.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    unsubscribed.incrementAndGet();
+                }
+            }));
+        }
+
+        System.gc();
+        Thread.sleep(10);
+
+        disposeBag.disposeAll();
+        assertEquals(10, unsubscribed.get());
+    }
+
+    @Test
+    public void track_removesOnCompletion(){
+        final DisposeBag disposeBag = new DisposeBag();
+        final TestSubscriber<String> subscriber = new TestSubscriber<String>();
+
+        disposeBag.track(Observable.just("Hello")).subscribe(subscriber);
+
+        subscriber.assertValue("Hello");
+        subscriber.assertCompleted();
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void track_removesOnError(){
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        final TestSubscriber<String> subscriber = new TestSubscriber<String>();
+
+        Observable.<String>error(new RuntimeException()).compose(disposeBag.<String>tracker()).subscribe(subscriber);
+
+        subscriber.assertError(RuntimeException.class);
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void track_removesOnUnsubscribe(){
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+
+        final Subscription subscription = disposeBag.track(Observable.<String>never()).subscribe();
+        assertEquals(1, disposeBag.size());
+
+        subscription.unsubscribe();
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void track_disposeAllUnsubscribes(){
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        final PublishSubject<String> subject = PublishSubject.create();
+        final TestSubscriber<String> subscriber = new TestSubscriber<String>();
+
+        disposeBag.track(subject).subscribe(subscriber);
+        assertTrue(subject.hasObservers());
+
+        disposeBag.disposeAll();
+
+        assertTrue(subscriber.isUnsubscribed());
+        assertFalse(subject.hasObservers());
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void disposeAll_keepsSubscriptionsAddedWhileDisposing(){
+        for (final ReferencePolicy policy : ReferencePolicy.values()) {
+            final DisposeBag disposeBag = new DisposeBag(policy);
+            final PublishSubject<String> subject = PublishSubject.create();
+            final Subscription late = Subscriptions.empty();
+
+            subject.compose(disposeBag.<String>tracker()).subscribe();
+            subject.onCompleted();
+            disposeBag.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    disposeBag.add(late);
+                }
+            }));
+
+            disposeBag.disposeAll();
+            assertFalse(late.isUnsubscribed());
+            assertEquals(1, disposeBag.size());
+
+            disposeBag.disposeAll();
+            assertTrue(late.isUnsubscribed());
+            assertEquals(0, disposeBag.size());
+        }
+    }
+
+    @Test
+    public void child_disposedWithParent(){
+        final DisposeBag screen = new DisposeBag();
+        final DisposeBag panel = screen.child();
+        final DisposeBag widget = panel.child();
+        final Subscription screenSubscription = Subscriptions.empty();
+        final Subscription panelSubscription = Subscriptions.empty();
+        final Subscription widgetSubscription = Subscriptions.empty();
+
+        screen.add(screenSubscription);
+        panel.add(panelSubscription);
+        widget.add(widgetSubscription);
+
+        screen.disposeAll();
+
+        assertTrue(screenSubscription.isUnsubscribed());
+        assertTrue(panelSubscription.isUnsubscribed());
+        assertTrue(widgetSubscription.isUnsubscribed());
+
+        final Subscription later = Subscriptions.empty();
+        widget.add(later);
+        screen.disposeAll();
+        assertTrue(later.isUnsubscribed());
+    }
+
+    @Test
+    public void child_disposedOnItsOwn(){
+        final DisposeBag parent = new DisposeBag();
+        final DisposeBag child = parent.child();
+        final Subscription parentSubscription = Subscriptions.empty();
+        final Subscription childSubscription = Subscriptions.empty();
+
+        parent.add(parentSubscription);
+        child.add(childSubscription);
+
+        child.disposeAll();
+
+        assertTrue(childSubscription.isUnsubscribed());
+        assertFalse(parentSubscription.isUnsubscribed());
+    }
+
+    @Test
+    public void child_closeDetaches(){
+        final DisposeBag parent = new DisposeBag();
+        final DisposeBag child = parent.child();
+        final Subscription childSubscription = Subscriptions.empty();
+        final Subscription afterClose = Subscriptions.empty();
+
+        child.add(childSubscription);
+        assertEquals(1, parent.size());
+
+        child.close();
+        assertTrue(childSubscription.isUnsubscribed());
+        assertEquals(0, parent.size());
+
+        child.add(afterClose);
+        parent.disposeAll();
+        assertFalse(afterClose.isUnsubscribed());
+    }
+
+    @Test
+    public void child_droppedAreDisposedThenCleanedUp() throws Exception {
+        for (final ReferencePolicy policy : ReferencePolicy.values()) {
+            final DisposeBag parent = new DisposeBag(policy);
+            final List<Subscription> dropped = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final Subscription subscription = Subscriptions.empty();
+                dropped.add(subscription);
+                parent.child().add(subscription);
+            }
+
+            final DisposeBag kept = parent.child();
+            final Subscription keptSubscription = Subscriptions.empty();
+            kept.add(keptSubscription);
+            for (int i = 0; i < 5; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+
+            parent.disposeAll();
+            assertEquals(1001, parent.size());
+            for (final Subscription subscription : dropped) {
+                assertTrue(subscription.isUnsubscribed());
+            }
+            assertTrue(keptSubscription.isUnsubscribed());
+
+            for (int i = 0; i < 50 && parent.size() > 1; i++) {
+                System.gc();
+                Thread.sleep(10);
+                parent.disposeAll();
+            }
+            assertEquals(1, parent.size());
+            assertEquals(0, kept.size());
+        }
+    }
+
+    @Test
+    public void child_droppedGrandchildKeepsChildAttached() throws Exception {
+        final DisposeBag parent = new DisposeBag(ReferencePolicy.STRONG);
+        final DisposeBag grandchild = parent.child().child();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(10);
+            parent.disposeAll();
+        }
+
+        final Subscription subscription = Subscriptions.empty();
+        grandchild.add(subscription);
+        parent.disposeAll();
+        assertTrue(subscription.isUnsubscribed());
+    }
+
+    @Test
+    public void child_parallelDisposeAll(){
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final DisposeBag parent = new DisposeBag();
+        final DisposeBag child = parent.child();
+        final List<Subscription> subscriptionList = new ArrayList<Subscription>(4000);
+
+        for (int i = 0; i < 4000; i++) {
+            final Subscription empty = Subscriptions.empty();
+            subscriptionList.add(empty);
+            (i % 2 == 0 ? parent : child).add(empty);
+        }
+
+        parent.disposeAll(executor, 1000);
+        executor.shutdown();
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+        assertEquals(1, parent.size());
+        assertEquals(0, child.size());
+    }
+
+    @Test
+    public void disposeAllAsync_unsubscribesAll(){
+        final DisposeBag disposeBag = new DisposeBag();
+        final List<Subscription> subscriptionList = new ArrayList<Subscription>(100);
+
+        for (int i = 0; i < 100; i++) {
+            final Subscription empty = Subscriptions.empty();
+            subscriptionList.add(empty);
+            disposeBag.add(empty);
+        }
+
+        final Observable<Void> disposal = disposeBag.disposeAllAsync(Schedulers.io(), 5, TimeUnit.SECONDS);
+        assertFalse(subscriptionList.get(0).isUnsubscribed());
+
+        final TestSubscriber<Void> subscriber = new TestSubscriber<Void>();
+        disposal.subscribe(subscriber);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        subscriber.assertNoErrors();
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+        assertEquals(0, disposeBag.size());
+    }
+
+    @Test
+    public void disposeAllAsync_reportsTimeoutsSeparately() throws Exception {
+        final DisposeBag disposeBag = new DisposeBag();
+        final TestScheduler timeoutScheduler = new TestScheduler();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final RuntimeException failure = new RuntimeException("failed");
+
+        final Subscription fast = Subscriptions.empty();
+        final Subscription failing = Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                throw failure;
+            }
+        });
+        final Subscription stuck = Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ignore) {
+                }
+            }
+        });
+
+        disposeBag.add(fast);
+        disposeBag.add(failing);
+        disposeBag.add(stuck);
+
+        final TestSubscriber<Void> subscriber = new TestSubscriber<Void>();
+        disposeBag.disposeAllAsync(Schedulers.io(), 1, TimeUnit.SECONDS, timeoutScheduler).subscribe(subscriber);
+
+        started.await(5, TimeUnit.SECONDS);
+        while (!fast.isUnsubscribed() || !failing.isUnsubscribed()) {
+            Thread.sleep(1);
+        }
+        assertTrue(subscriber.getOnErrorEvents().isEmpty());
+
+        timeoutScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        final DisposeTimeoutException timeoutException = (DisposeTimeoutException) subscriber.getOnErrorEvents().get(0);
+        assertEquals(1, timeoutException.getTimedOut().size());
+        assertTrue(timeoutException.getTimedOut().get(0) == stuck);
+        assertEquals(1, timeoutException.getFailures().size());
+        assertTrue(timeoutException.getFailures().get(0) == failure);
+    }
+
+    @Test
+    public void disposeAllAsync_timesOutEachSubscriptionFromItsOwnStart() throws Exception {
+        final DisposeBag disposeBag = new DisposeBag();
+        final TestScheduler timeoutScheduler = new TestScheduler();
+        final int stuckCount = Runtime.getRuntime().availableProcessors();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(stuckCount);
+
+        final List<Subscription> stuck = new ArrayList<Subscription>(stuckCount);
+        for (int i = 0; i < stuckCount; i++) {
+            final Subscription subscription = Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException ignore) {
+                    }
+                }
+            });
+            stuck.add(subscription);
+            disposeBag.add(subscription);
+        }
+        final Subscription queued = Subscriptions.empty();
+        disposeBag.add(queued);
+
+        final TestSubscriber<Void> subscriber = new TestSubscriber<Void>();
+        disposeBag.disposeAllAsync(Schedulers.io(), 1, TimeUnit.SECONDS, timeoutScheduler).subscribe(subscriber);
+        started.await(5, TimeUnit.SECONDS);
+        assertFalse(queued.isUnsubscribed());
+
+        timeoutScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertTrue(queued.isUnsubscribed());
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        final DisposeTimeoutException timeoutException = (DisposeTimeoutException) subscriber.getOnErrorEvents().get(0);
+        assertEquals(stuckCount, timeoutException.getTimedOut().size());
+        assertTrue(timeoutException.getTimedOut().containsAll(stuck));
+    }
+
+    @Test
+    public void disposeTimeoutException_serializesWithoutSubscriptions() throws Exception {
+        final RuntimeException failure = new RuntimeException("failed");
+        final DisposeTimeoutException exception = new DisposeTimeoutException(
+                Collections.singletonList(Subscriptions.empty()), Collections.singletonList(failure));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(exception);
+        }
+        final DisposeTimeoutException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (DisposeTimeoutException) in.readObject();
+        }
+
+        assertEquals(exception.getMessage(), copy.getMessage());
+        assertTrue(copy.getTimedOut().isEmpty());
+        assertEquals(1, copy.getFailures().size());
+    }
+
+    @Test
+    public void disposeAllAsync_lateFailuresGoToLateErrorHandler() throws Exception {
+        final DisposeBag disposeBag = new DisposeBag();
+        final TestScheduler timeoutScheduler = new TestScheduler();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final RuntimeException lateFailure = new RuntimeException("late");
+        final Queue<Throwable> lateErrors = new ConcurrentLinkedQueue<Throwable>();
+
+        final Subscription stuck = Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ignore) {
+                }
+                throw lateFailure;
+            }
+        });
+        disposeBag.add(stuck);
+
+        final TestSubscriber<Void> subscriber = new TestSubscriber<Void>();
+        disposeBag.disposeAllAsync(Schedulers.io(), 1, TimeUnit.SECONDS, timeoutScheduler, new Action1<Throwable>() {
+            @Override
+            public void call(final Throwable error) {
+                lateErrors.add(error);
+            }
+        }).subscribe(subscriber);
+        started.await(5, TimeUnit.SECONDS);
+        timeoutScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertError(DisposeTimeoutException.class);
+
+        release.countDown();
+        for (int i = 0; i < 500 && !lateErrors.contains(lateFailure); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(lateErrors.contains(lateFailure));
+    }
+
+    @Test
+    public void disposeAllAsync_reportsFailures(){
+        final DisposeBag disposeBag = new DisposeBag();
+        final RuntimeException failure = new RuntimeException("failed");
+        final Subscription empty = Subscriptions.empty();
+
+        disposeBag.add(empty);
+        disposeBag.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                throw failure;
+            }
+        }));
+
+        final TestSubscriber<Void> subscriber = new TestSubscriber<Void>();
+        disposeBag.disposeAllAsync(Schedulers.io(), 5, TimeUnit.SECONDS).subscribe(subscriber);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        assertTrue(empty.isUnsubscribed());
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().get(0) == failure);
+    }
+
+    @Test
+    public void disposeAllAsync_emptyCompletesImmediately(){
+        final DisposeBag disposeBag = new DisposeBag();
+
+        final TestSubscriber<Void> subscriber = new TestSubscriber<Void>();
+        disposeBag.disposeAllAsync(new TestScheduler(), 1, TimeUnit.SECONDS).subscribe(subscriber);
+
+        subscriber.assertNoErrors();
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+    }
+
+}
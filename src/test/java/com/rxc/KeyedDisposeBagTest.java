@@ -0,0 +1,152 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KeyedDisposeBagTest {
+
+    @Test
+    public void dispose_onlyDisposesKey(){
+        final KeyedDisposeBag<String> disposeBag = new KeyedDisposeBag<>();
+        final Subscription first = Subscriptions.empty();
+        final Subscription second = Subscriptions.empty();
+        final Subscription other = Subscriptions.empty();
+
+        disposeBag.add("request-1", first);
+        disposeBag.add("request-1", second);
+        disposeBag.add("request-2", other);
+
+        disposeBag.dispose("request-1");
+
+        assertTrue(first.isUnsubscribed());
+        assertTrue(second.isUnsubscribed());
+        assertFalse(other.isUnsubscribed());
+        assertEquals(0, disposeBag.size("request-1"));
+        assertEquals(1, disposeBag.size("request-2"));
+    }
+
+    @Test
+    public void dispose_unknownKey(){
+        final KeyedDisposeBag<String> disposeBag = new KeyedDisposeBag<>();
+
+        disposeBag.dispose("missing");
+        //Assert no exceptions
+    }
+
+    @Test
+    public void addAll(){
+        final List<Subscription> subscriptionList = new ArrayList<>(10);
+        final KeyedDisposeBag<Integer> disposeBag = new KeyedDisposeBag<>();
+
+        for (int i = 0; i < 10; i++) {
+            subscriptionList.add(Subscriptions.empty());
+        }
+        disposeBag.addAll(7, subscriptionList);
+
+        disposeBag.dispose(7);
+
+        for(final Subscription subscription : subscriptionList){
+            assertTrue(subscription.isUnsubscribed());
+        }
+    }
+
+    @Test
+    public void disposeAll(){
+        final KeyedDisposeBag<String> disposeBag = new KeyedDisposeBag<>();
+        final Subscription first = Subscriptions.empty();
+        final Subscription second = Subscriptions.empty();
+
+        disposeBag.add("tenant-a", first);
+        disposeBag.add("tenant-b", second);
+
+        disposeBag.disposeAll();
+
+        assertTrue(first.isUnsubscribed());
+        assertTrue(second.isUnsubscribed());
+        assertEquals(0, disposeBag.keyCount());
+    }
+
+    @Test
+    public void disposeAll_keepsSubscriptionsAddedWhileDisposing(){
+        for (final ReferencePolicy policy : ReferencePolicy.values()) {
+            final KeyedDisposeBag<String> disposeBag = new KeyedDisposeBag<>(policy);
+            final Subscription sameKey = Subscriptions.empty();
+            final Subscription newKey = Subscriptions.empty();
+
+            final Subscription adding = Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    disposeBag.add("tenant-a", sameKey);
+                    disposeBag.add("tenant-c", newKey);
+                }
+            });
+            disposeBag.add("tenant-a", adding);
+            disposeBag.add("tenant-b", Subscriptions.empty());
+
+            disposeBag.disposeAll();
+            assertTrue(adding.isUnsubscribed());
+            assertFalse(sameKey.isUnsubscribed());
+            assertFalse(newKey.isUnsubscribed());
+            assertEquals(1, disposeBag.size("tenant-a"));
+            assertEquals(1, disposeBag.size("tenant-c"));
+            assertEquals(2, disposeBag.keyCount());
+
+            disposeBag.disposeAll();
+            assertTrue(sameKey.isUnsubscribed());
+            assertTrue(newKey.isUnsubscribed());
+            assertEquals(0, disposeBag.keyCount());
+        }
+    }
+
+    @Test
+    public void dispose_evenWithExceptions(){
+        final KeyedDisposeBag<String> disposeBag = new KeyedDisposeBag<>(ReferencePolicy.STRONG);
+        final Subscription after = Subscriptions.empty();
+
+        disposeBag.add("key", Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                throw new RuntimeException();
+            }
+        }));
+        disposeBag.add("key", after);
+
+        try {
+            disposeBag.dispose("key");
+            fail("Did not throw");
+        } catch (final RuntimeException e){
+            //Expected
+        }
+
+        assertTrue(after.isUnsubscribed());
+    }
+
+    @Test
+    public void dereferenced_keysAreForgotten() throws Exception {
+        final KeyedDisposeBag<Integer> disposeBag = new KeyedDisposeBag<>();
+
+        for (int i = 0; i < 1000; i++) {
+            disposeBag.add(i, Subscriptions.empty());
+        }
+
+        final Subscription kept = Subscriptions.empty();
+        for (int i = 0; i < 50 && disposeBag.keyCount() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            disposeBag.add(-1, kept);
+        }
+
+        assertEquals(1, disposeBag.keyCount());
+        assertTrue(disposeBag.size(-1) > 0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.rxc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty(){
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void percentiles(){
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000000, histogram.getMaxNanos());
+
+        final long p50 = histogram.getPercentileNanos(50);
+        assertTrue(p50 >= 1000 && p50 < 2000);
+
+        final long p100 = histogram.getPercentileNanos(100);
+        assertEquals(1000000, p100);
+    }
+
+    @Test
+    public void addTo(){
+        final LatencyHistogram first = new LatencyHistogram();
+        final LatencyHistogram second = new LatencyHistogram();
+
+        first.record(10);
+        second.record(5000);
+        first.addTo(second);
+
+        assertEquals(2, second.getCount());
+        assertEquals(5000, second.getMaxNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile(){
+        new LatencyHistogram().getPercentileNanos(101);
+    }
+}
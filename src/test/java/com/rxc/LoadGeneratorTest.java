@@ -0,0 +1,136 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class LoadGeneratorTest {
+
+    private static final Func0<Integer> COUNTER = new Func0<Integer>() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Integer call() {
+            return count.getAndIncrement();
+        }
+    };
+
+    @Test
+    public void achievesRate(){
+        final AtomicReference<LoadReport> report = new AtomicReference<>();
+        final LoadGenerator<Integer> generator = new LoadGenerator<>(COUNTER, 1000, 200)
+                .withReporter(new Action1<LoadReport>() {
+                    @Override
+                    public void call(final LoadReport loadReport) {
+                        report.set(loadReport);
+                    }
+                });
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        new ObservableBuilder<Integer>()
+                .emitAtRate(generator)
+                .complete()
+                .subscribe(subscriber);
+
+        assertEquals(200, subscriber.getOnNextEvents().size());
+        assertNotNull(report.get());
+        assertEquals(200, report.get().getEmitted());
+        assertTrue(report.get().getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(199));
+        assertTrue(report.get().toString(), Math.abs(report.get().getAchievedRate() - 1000) < 100);
+    }
+
+    @Test
+    public void bursts_virtualTime(){
+        final TestScheduler scheduler = new TestScheduler();
+        final AtomicReference<LoadReport> report = new AtomicReference<>();
+        final LoadGenerator<Integer> generator = new LoadGenerator<>(COUNTER, 10, 10)
+                .withBursts(5)
+                .withReporter(new Action1<LoadReport>() {
+                    @Override
+                    public void call(final LoadReport loadReport) {
+                        report.set(loadReport);
+                    }
+                });
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        new UnsafeObservableBuilder<Integer>()
+                .emitAtRate(generator)
+                .complete()
+                .build(scheduler)
+                .subscribe(subscriber);
+
+        assertEquals(5, subscriber.getOnNextEvents().size());
+
+        scheduler.advanceTimeBy(499, TimeUnit.MILLISECONDS);
+        assertEquals(5, subscriber.getOnNextEvents().size());
+        assertEquals(null, report.get());
+
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(10, subscriber.getOnNextEvents().size());
+        subscriber.assertCompleted();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), report.get().getElapsedNanos());
+        assertEquals(20, report.get().getAchievedRate(), 0.001);
+    }
+
+    @Test
+    public void jitter_isReproducibleWithSeed(){
+        final LoadGenerator<Integer> generator = new LoadGenerator<>(COUNTER, 100, 50)
+                .withJitter(0.5)
+                .withSeed(42);
+
+        assertEquals(emissionTimes(generator), emissionTimes(generator));
+    }
+
+    @Test
+    public void backpressured_waitsForRequests(){
+        final TestScheduler scheduler = new TestScheduler();
+        final Observable<Integer> testObj = new ObservableBuilder<Integer>()
+                .backpressured()
+                .emitAtRate(new LoadGenerator<>(COUNTER, 1000, 10))
+                .build(scheduler);
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>(0);
+        testObj.subscribe(subscriber);
+
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        assertEquals(0, subscriber.getOnNextEvents().size());
+
+        subscriber.requestMore(3);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        assertEquals(3, subscriber.getOnNextEvents().size());
+    }
+
+    private static List<Long> emissionTimes(final LoadGenerator<Integer> generator){
+        final TestScheduler scheduler = new TestScheduler();
+        final List<Long> times = new ArrayList<>();
+
+        new ObservableBuilder<Integer>()
+                .emitAtRate(generator)
+                .build(scheduler)
+                .subscribe(new Action1<Integer>() {
+                    @Override
+                    public void call(final Integer integer) {
+                        times.add(scheduler.now());
+                    }
+                });
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertEquals(50, times.size());
+        return times;
+    }
+}
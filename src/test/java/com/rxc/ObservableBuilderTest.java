@@ -5,11 +5,15 @@ import rx.Notification;
 import rx.Observable;
 import rx.Subscriber;
 import rx.functions.Action1;
+import rx.functions.Func1;
 import rx.observers.TestSubscriber;
 import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.CoreMatchers.containsString;
@@ -137,4 +141,167 @@ public class ObservableBuilderTest {
 
         assertTrue(endMills - startMills >= 1000);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void backpressured(){
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .backpressured()
+                .emit("Hello")
+                .emit("World")
+                .complete();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>(1);
+        testObj.subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+        subscriber.assertNoTerminalEvent();
+
+        subscriber.requestMore(1);
+        subscriber.assertReceivedOnNext(Arrays.asList("Hello", "World"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void sleepOn(){
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .sleepOn(Schedulers.newThread())
+                .sleep(100)
+                .emit("Hello")
+                .complete();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+        subscriber.assertNoValues();
+
+        subscriber.awaitTerminalEvent();
+        subscriber.assertNoErrors();
+        subscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+        assertNotSame(Thread.currentThread(), subscriber.getLastSeenThread());
+    }
+
+    @Test
+    public void build_virtualTime(){
+        final TestScheduler scheduler = new TestScheduler();
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .sleep(TimeUnit.DAYS.toMillis(1))
+                .emit("Hello")
+                .build(scheduler);
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+        subscriber.assertNoValues();
+
+        scheduler.advanceTimeBy(1, TimeUnit.DAYS);
+        subscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+    }
+
+    @Test
+    public void emitRange(){
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .emitRange(1, 3, new Func1<Integer, String>() {
+                    @Override
+                    public String call(final Integer i) {
+                        return "Item " + i;
+                    }
+                })
+                .complete();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("Item 1", "Item 2", "Item 3"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void repeat(){
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .repeat(3, new ObservableBuilder<String>().emit("Hello"))
+                .complete();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("Hello", "Hello", "Hello"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void loop(){
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .emit("Hello")
+                .loop(new ObservableBuilder<String>().emit("World"));
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.take(3).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("Hello", "World", "World"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void repeat_rejectsTerminatedBlocks(){
+        final ObservableBuilder<String> block = new ObservableBuilder<String>().emit("Hello");
+        block.complete();
+
+        new ObservableBuilder<String>().repeat(2, block);
+    }
+
+    @Test
+    public void fork(){
+        final ObservableBuilder<String> base = new ObservableBuilder<String>().emit("Hello");
+        final Observable<String> world = base.fork().emit("World").complete();
+        final Observable<String> error = base.fork().error(new IOException());
+
+        final TestSubscriber<String> worldSubscriber = new TestSubscriber<>();
+        world.subscribe(worldSubscriber);
+        worldSubscriber.assertReceivedOnNext(Arrays.asList("Hello", "World"));
+        worldSubscriber.assertNoErrors();
+
+        final TestSubscriber<String> errorSubscriber = new TestSubscriber<>();
+        error.subscribe(errorSubscriber);
+        errorSubscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+        errorSubscriber.assertError(IOException.class);
+    }
+
+    @Test
+    public void unsubscribe_stopsSleepingObservable(){
+        final AtomicBoolean performed = new AtomicBoolean();
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .emit("a")
+                .sleep(10000)
+                .perform(new Runnable() {
+                    @Override
+                    public void run() {
+                        performed.set(true);
+                    }
+                })
+                .complete();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        final long start = System.nanoTime();
+        testObj.take(1).subscribe(subscriber);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(performed.get());
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void on(){
+        final TestScheduler scheduler = new TestScheduler();
+        final Observable<String> testObj = new ObservableBuilder<String>()
+                .emit("a")
+                .on(scheduler)
+                .emit("b")
+                .complete();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+
+        scheduler.triggerActions();
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b"));
+        subscriber.assertTerminalEvent();
+    }
+}
@@ -0,0 +1,156 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Func1;
+import rx.observers.SerializedSubscriber;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OperatorStressHarnessTest {
+
+    private static final Observable.Operator<Integer, Integer> PASS_THROUGH = new Observable.Operator<Integer, Integer>() {
+        @Override
+        public Subscriber<? super Integer> call(final Subscriber<? super Integer> child) {
+            return new Subscriber<Integer>(child) {
+                @Override
+                public void onNext(final Integer item) {
+                    child.onNext(item);
+                }
+
+                @Override
+                public void onError(final Throwable e) {
+                    child.onError(e);
+                }
+
+                @Override
+                public void onCompleted() {
+                    child.onCompleted();
+                }
+            };
+        }
+    };
+
+    private static final Observable.Operator<Integer, Integer> SERIALIZE = new Observable.Operator<Integer, Integer>() {
+        @Override
+        public Subscriber<? super Integer> call(final Subscriber<? super Integer> child) {
+            return new SerializedSubscriber<>(child);
+        }
+    };
+
+    @Test
+    public void detectsDuplicateTerminals(){
+        final StressReport report = new OperatorStressHarness<Integer, Integer>(PASS_THROUGH)
+                .withScript(script())
+                .withScript(script())
+                .withIterations(100)
+                .run();
+
+        assertEquals(100, report.getIterations());
+        assertEquals(100, report.getViolations(ContractViolation.DUPLICATE_TERMINAL));
+        assertTrue(report.getViolations(ContractViolation.ON_NEXT_AFTER_TERMINAL) > 0);
+    }
+
+    @Test
+    public void detectsConcurrentCalls(){
+        final StressReport report = new OperatorStressHarness<Integer, Integer>(PASS_THROUGH)
+                .withScript(script())
+                .withScript(script())
+                .withIterations(50)
+                .withParallelism(2)
+                .run();
+
+        assertTrue(report.toString(), report.getViolations(ContractViolation.CONCURRENT_CALL) > 0);
+    }
+
+    @Test
+    public void serializedOperator_hasNoViolations(){
+        final StressReport report = new OperatorStressHarness<Integer, Integer>(SERIALIZE)
+                .withScript(script())
+                .withScript(script())
+                .withScript(script())
+                .withIterations(200)
+                .withParallelism(4)
+                .run();
+
+        assertEquals(report.toString(), 0, report.getTotalViolations());
+        assertTrue(report.getItemsDelivered() >= 200 * 100);
+        assertTrue(report.getThroughput() > 0);
+    }
+
+    @Test
+    public void detectsOperatorThrowing(){
+        final Observable.Operator<Integer, Integer> throwing = new Observable.Operator<Integer, Integer>() {
+            @Override
+            public Subscriber<? super Integer> call(final Subscriber<? super Integer> child) {
+                throw new IllegalStateException("Broken");
+            }
+        };
+
+        final StressReport report = new OperatorStressHarness<Integer, Integer>(throwing)
+                .withScript(script())
+                .withIterations(20)
+                .run();
+
+        assertEquals(20, report.getViolations(ContractViolation.OPERATOR_THREW));
+        assertEquals(10, report.getThrown().size());
+    }
+
+    @Test
+    public void asyncScripts_areWaitedFor(){
+        final StressReport report = new OperatorStressHarness<Integer, Integer>(PASS_THROUGH)
+                .withScript(new UnsafeObservableBuilder<Integer>()
+                        .on(Schedulers.io())
+                        .sleep(5)
+                        .emitRange(0, 100, new Func1<Integer, Integer>() {
+                            @Override
+                            public Integer call(final Integer integer) {
+                                return integer;
+                            }
+                        })
+                        .complete())
+                .withIterations(20)
+                .run();
+
+        assertEquals(report.toString(), 20 * 100, report.getItemsDelivered());
+        assertEquals(0, report.getUnfinishedScripts());
+    }
+
+    @Test
+    public void scriptTimeout_countsUnfinishedScripts(){
+        final StressReport report = new OperatorStressHarness<Integer, Integer>(PASS_THROUGH)
+                .withScript(new UnsafeObservableBuilder<Integer>()
+                        .on(Schedulers.io())
+                        .sleep(1000)
+                        .complete())
+                .withIterations(2)
+                .withParallelism(2)
+                .withScriptTimeout(50, TimeUnit.MILLISECONDS)
+                .run();
+
+        assertEquals(2, report.getUnfinishedScripts());
+        assertTrue(report.getElapsedNanos() < TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void run_requiresScripts(){
+        new OperatorStressHarness<Integer, Integer>(PASS_THROUGH).run();
+    }
+
+    private static UnsafeObservableBuilder<Integer> script(){
+        return new UnsafeObservableBuilder<Integer>()
+                .emitRange(0, 100, new Func1<Integer, Integer>() {
+                    @Override
+                    public Integer call(final Integer integer) {
+                        return integer;
+                    }
+                })
+                .complete()
+                .emit(-1);
+    }
+}
@@ -0,0 +1,259 @@
+package com.rxc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RecordingTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ItemSerializer<String> STRINGS = new ItemSerializer<String>() {
+        @Override
+        public byte[] serialize(final String item) {
+            return item.getBytes(UTF_8);
+        }
+
+        @Override
+        public String deserialize(final byte[] bytes) {
+            return new String(bytes, UTF_8);
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void record_passesEverythingOn() throws IOException {
+        final File file = folder.newFile();
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        ObservableRecorder.record(Observable.just("a", "b"), file, STRINGS).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b"));
+        subscriber.assertTerminalEvent();
+        subscriber.assertNoErrors();
+    }
+
+    @Test
+    public void record_failureToRecordIsNotRecorded() throws IOException {
+        final IOException failure = new IOException("Can't serialize");
+        final File file = folder.newFile();
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        ObservableRecorder.record(Observable.just("a", "bad", "c"), file, new ItemSerializer<String>() {
+            @Override
+            public byte[] serialize(final String item) throws IOException {
+                if (item.equals("bad")) {
+                    throw failure;
+                }
+                return STRINGS.serialize(item);
+            }
+
+            @Override
+            public String deserialize(final byte[] bytes) throws IOException {
+                return STRINGS.deserialize(bytes);
+            }
+        }).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+        assertEquals(Collections.<Throwable>singletonList(failure), subscriber.getOnErrorEvents());
+
+        final Recording<String> recording = Recording.open(file, STRINGS);
+        assertEquals(1, recording.getItemCount());
+        assertFalse(recording.isTerminated());
+    }
+
+    @Test
+    public void replay_maxSpeed() throws IOException {
+        final Recording<String> recording = record(Observable.just("a", "b", "c"));
+
+        assertEquals(3, recording.getItemCount());
+        assertTrue(recording.isTerminated());
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        recording.withSpeed(Recording.MAX_SPEED).replay().subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b", "c"));
+        subscriber.assertTerminalEvent();
+        subscriber.assertNoErrors();
+    }
+
+    @Test
+    public void replay_error() throws IOException {
+        final Recording<String> recording = record(Observable.just("a").concatWith(Observable.<String>error(new IOException("Nope"))));
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        recording.withSpeed(Recording.MAX_SPEED).replay().subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        final RecordedException error = (RecordedException) subscriber.getOnErrorEvents().get(0);
+        assertEquals(IOException.class.getName(), error.getRecordedClassName());
+        assertEquals("Nope", error.getMessage());
+        assertEquals(getClass().getName(), error.getStackTrace()[0].getClassName());
+    }
+
+    @Test
+    public void replay_acrossWindows() throws IOException {
+        final File file = folder.newFile();
+        ObservableRecorder.record(Observable.just("first", "second", "third"), file, STRINGS)
+                .subscribe(new TestSubscriber<String>());
+        final Recording<String> recording = Recording.open(file, STRINGS, 3);
+
+        assertEquals(3, recording.getItemCount());
+        assertTrue(recording.isTerminated());
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        recording.withSpeed(Recording.MAX_SPEED).replay().subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Arrays.asList("first", "second", "third"));
+        subscriber.assertTerminalEvent();
+        subscriber.assertNoErrors();
+    }
+
+    @Test
+    public void replay_originalTiming() throws IOException {
+        final Recording<String> recording = record(new ObservableBuilder<String>()
+                .emit("a")
+                .sleep(200)
+                .emit("b")
+                .complete());
+        assertTrue(recording.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        new ObservableBuilder<String>()
+                .sleepOn(scheduler)
+                .replayAndTerminate(recording)
+                .subscribe(subscriber);
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+
+        scheduler.advanceTimeBy(recording.getDurationNanos(), TimeUnit.NANOSECONDS);
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void replay_scaledTiming() throws IOException {
+        final Recording<String> recording = record(new ObservableBuilder<String>()
+                .emit("a")
+                .sleep(200)
+                .emit("b")
+                .complete());
+
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        new ObservableBuilder<String>()
+                .sleepOn(scheduler)
+                .replayAndTerminate(recording.withSpeed(4))
+                .subscribe(subscriber);
+
+        scheduler.advanceTimeBy(recording.getDurationNanos() / 4 + 1, TimeUnit.NANOSECONDS);
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void replay_backpressured() throws IOException {
+        final Recording<String> recording = record(Observable.just("a", "b", "c"));
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>(1);
+        new ObservableBuilder<String>()
+                .backpressured()
+                .replayAndTerminate(recording.withSpeed(Recording.MAX_SPEED))
+                .subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+
+        subscriber.requestMore(5);
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b", "c"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void open_ignoresRecordCutShort() throws IOException {
+        final File file = folder.newFile();
+        ObservableRecorder.record(Observable.just("first", "second"), file, STRINGS).subscribe(new TestSubscriber<String>());
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(randomAccessFile.length() - 8);
+        }
+
+        final Recording<String> recording = Recording.open(file, STRINGS);
+        assertEquals(1, recording.getItemCount());
+        assertFalse(recording.isTerminated());
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        recording.withSpeed(Recording.MAX_SPEED).replay().subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Collections.singletonList("first"));
+        assertTrue(subscriber.getOnCompletedEvents().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws IOException {
+        final File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not a recording".getBytes(UTF_8));
+        }
+
+        Recording.open(file, STRINGS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void replay_rejectsTerminatedRecordings() throws IOException {
+        final Recording<String> recording = record(Observable.just("a", "b"));
+        new ObservableBuilder<String>().replay(recording).emit("after").complete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void replayAndTerminate_rejectsUnterminatedRecordings() throws IOException {
+        new ObservableBuilder<String>().replayAndTerminate(recordUnterminated("a"));
+    }
+
+    @Test
+    public void replay_unterminatedRecordingCarriesOn() throws IOException {
+        final Recording<String> recording = recordUnterminated("a");
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        new ObservableBuilder<String>()
+                .replay(recording.withSpeed(Recording.MAX_SPEED))
+                .emit("after")
+                .complete()
+                .subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "after"));
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void repeat_rejectsTerminatedRecordings() throws IOException {
+        final Recording<String> recording = record(Observable.just("a"));
+        new ObservableBuilder<String>().repeat(2, new ObservableBuilder<String>().replay(recording));
+    }
+
+    private Recording<String> recordUnterminated(final String item) throws IOException {
+        final File file = folder.newFile();
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        ObservableRecorder.record(Observable.just(item).concatWith(Observable.<String>never()), file, STRINGS)
+                .subscribe(subscriber);
+        subscriber.unsubscribe();
+        return Recording.open(file, STRINGS);
+    }
+
+    private Recording<String> record(final Observable<String> source) throws IOException {
+        final File file = folder.newFile();
+        ObservableRecorder.record(source, file, STRINGS).subscribe(new TestSubscriber<String>());
+        return Recording.open(file, STRINGS);
+    }
+}
@@ -0,0 +1,122 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScriptGeneratorTest {
+
+    private static final ScriptGenerator<Integer> GENERATOR = new ScriptGenerator<>(new Func1<Random, Integer>() {
+        @Override
+        public Integer call(final Random random) {
+            return random.nextInt(20);
+        }
+    });
+
+    private static final Func1<EventScript<Integer>, Boolean> AT_MOST_ONE_TERMINAL = new Func1<EventScript<Integer>, Boolean>() {
+        @Override
+        public Boolean call(final EventScript<Integer> script) {
+            final TestSubscriber<Integer> subscriber = run(script);
+            return subscriber.getOnCompletedEvents().size() + subscriber.getOnErrorEvents().size() <= 1;
+        }
+    };
+
+    @Test
+    public void sameSeed_sameScript(){
+        assertEquals(GENERATOR.valid(42).toString(), GENERATOR.valid(42).toString());
+        assertEquals(GENERATOR.invalid(42).toString(), GENERATOR.invalid(42).toString());
+    }
+
+    @Test
+    public void validity(){
+        for (long seed = 0; seed < 1000; seed++) {
+            assertTrue(GENERATOR.valid(seed).isValid());
+            assertFalse(GENERATOR.invalid(seed).isValid());
+        }
+    }
+
+    @Test
+    public void checkValid_passes(){
+        assertNull(GENERATOR.checkValid(7, 5000, AT_MOST_ONE_TERMINAL));
+    }
+
+    @Test
+    public void checkValid_shrinksToMinimalScript(){
+        final EventScript<Integer> failure = GENERATOR.checkValid(7, 5000, new Func1<EventScript<Integer>, Boolean>() {
+            @Override
+            public Boolean call(final EventScript<Integer> script) {
+                return !run(script).getOnNextEvents().contains(13);
+            }
+        });
+
+        assertNotNull(failure);
+        assertTrue(failure.isValid());
+        assertEquals(2, failure.size());
+        assertTrue(failure.toString(), failure.toString().contains(".emit(13)."));
+    }
+
+    @Test
+    public void checkInvalid_shrinksToMinimalScript(){
+        final EventScript<Integer> failure = GENERATOR.checkInvalid(7, 5000, AT_MOST_ONE_TERMINAL);
+
+        assertNotNull(failure);
+        assertEquals(failure.toString(), 2, failure.size());
+        assertEquals(2, run(failure).getOnCompletedEvents().size() + run(failure).getOnErrorEvents().size());
+    }
+
+    @Test
+    public void shrink_shortensSleeps(){
+        final EventScript<Integer> failure = GENERATOR.withSleeps(1, 5).withMaxLength(5).withErrors(0).checkValid(3, 100,
+                new Func1<EventScript<Integer>, Boolean>() {
+                    @Override
+                    public Boolean call(final EventScript<Integer> script) {
+                        return !script.toString().contains("sleep(");
+                    }
+                });
+
+        assertNotNull(failure);
+        assertEquals("new UnsafeObservableBuilder<>().sleep(0).complete()", failure.toString());
+    }
+
+    @Test
+    public void withLengths_drawsLengthsFromDistribution(){
+        final ScriptGenerator<Integer> generator = GENERATOR.withLengths(new Func1<Random, Integer>() {
+            @Override
+            public Integer call(final Random random) {
+                return 3;
+            }
+        });
+
+        for (long seed = 0; seed < 100; seed++) {
+            assertEquals(4, generator.valid(seed).size());
+        }
+    }
+
+    @Test
+    public void toString_printsRunnableBuilderCalls(){
+        final ScriptGenerator<String> generator = new ScriptGenerator<>(new Func1<Random, String>() {
+            @Override
+            public String call(final Random random) {
+                return "a\"b";
+            }
+        }).withLengths(new Func1<Random, Integer>() {
+            @Override
+            public Integer call(final Random random) {
+                return 1;
+            }
+        }).withSleeps(0, 0).withErrors(1);
+
+        assertEquals("new UnsafeObservableBuilder<>().emit(\"a\\\"b\").error(new ScriptedException())",
+                generator.valid(1).toString());
+    }
+
+    private static TestSubscriber<Integer> run(final EventScript<Integer> script){
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        script.toObservable().unsafeSubscribe(subscriber);
+        return subscriber;
+    }
+}
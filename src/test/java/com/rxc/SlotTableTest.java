@@ -0,0 +1,163 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+import rx.subscriptions.Subscriptions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class SlotTableTest {
+
+    @Test
+    public void strongReference_recycledAfterDisposal(){
+        final SlotTable table = new SlotTable();
+
+        final Subscription first = Subscriptions.empty();
+        final SlotReference ref = table.strongReference(first);
+        table.add(ref);
+        table.disposeAll(null);
+
+        assertTrue(first.isUnsubscribed());
+        assertEquals(0, table.size());
+
+        final Subscription second = Subscriptions.empty();
+        final SlotReference reused = table.strongReference(second);
+        assertSame(ref, reused);
+        assertSame(second, reused.get());
+
+        table.add(reused);
+        table.disposeAll(null);
+
+        assertTrue(second.isUnsubscribed());
+    }
+
+    @Test
+    public void strongReference_notRecycledWhenRemoved(){
+        final SlotTable table = new SlotTable();
+
+        final SlotReference ref = table.strongReference(Subscriptions.empty());
+        table.add(ref);
+        table.remove(ref);
+        table.disposeAll(null);
+
+        assertNotSame(ref, table.strongReference(Subscriptions.empty()));
+    }
+
+    @Test
+    public void strongReference_poolIsCapped(){
+        final SlotTable table = new SlotTable();
+        final Set<SlotReference> disposed = Collections.newSetFromMap(new IdentityHashMap<SlotReference, Boolean>());
+        for (int i = 0; i < SlotTable.MAX_RECYCLED * 2; i++) {
+            final SlotReference ref = table.strongReference(Subscriptions.empty());
+            table.add(ref);
+            disposed.add(ref);
+        }
+        table.disposeAll(null);
+
+        int reused = 0;
+        for (int i = 0; i < SlotTable.MAX_RECYCLED * 2; i++) {
+            if (disposed.contains(table.strongReference(Subscriptions.empty()))) {
+                reused++;
+            }
+        }
+        assertEquals(SlotTable.MAX_RECYCLED, reused);
+    }
+
+    @Test
+    public void disposeAll_snapshotShrinksAfterPeak(){
+        final SlotTable table = new SlotTable();
+        for (int i = 0; i < SlotTable.MAX_RECYCLED * 16; i++) {
+            table.add(table.strongReference(Subscriptions.empty()));
+        }
+        table.disposeAll(null);
+        assertEquals(SlotTable.MAX_RECYCLED * 16, table.snapshotCapacity());
+
+        table.add(table.strongReference(Subscriptions.empty()));
+        table.disposeAll(null);
+        assertTrue(table.snapshotCapacity() <= SlotTable.MAX_RECYCLED);
+    }
+
+    @Test
+    public void disposeAll_noErrorsCreatesNoList(){
+        final SlotTable table = new SlotTable();
+        table.add(table.strongReference(Subscriptions.empty()));
+
+        assertEquals(null, table.disposeAll(null));
+    }
+
+    @Test
+    public void trackedSubscriptionsAreNotRecycled(){
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        final PublishSubject<Integer> subject = PublishSubject.create();
+
+        final Observable<Integer> tracked = subject.compose(disposeBag.<Integer>tracker());
+        final Subscription subscription = tracked.subscribe();
+        disposeBag.disposeAll();
+
+        final Subscription next = Subscriptions.empty();
+        disposeBag.add(next);
+        subject.onCompleted();
+
+        assertTrue(subscription.isUnsubscribed());
+        assertFalse(next.isUnsubscribed());
+        assertEquals(1, disposeBag.size());
+    }
+
+    @Test
+    public void strongPolicy_steadyStateDoesNotAllocate() throws Exception {
+        final Method allocatedBytes = allocatedBytesMethod();
+        assumeTrue(allocatedBytes != null);
+
+        final DisposeBag disposeBag = new DisposeBag(ReferencePolicy.STRONG);
+        final Subscription[] subscriptions = new Subscription[1000];
+        for (int i = 0; i < subscriptions.length; i++) {
+            subscriptions[i] = Subscriptions.empty();
+        }
+
+        for (int round = 0; round < 200; round++) {
+            fillAndDispose(disposeBag, subscriptions);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long start = (Long) allocatedBytes.invoke(ManagementFactory.getThreadMXBean(), threadId);
+        for (int round = 0; round < 100; round++) {
+            fillAndDispose(disposeBag, subscriptions);
+        }
+        final long end = (Long) allocatedBytes.invoke(ManagementFactory.getThreadMXBean(), threadId);
+
+        final long allocated = end - start;
+        assertTrue("Allocated " + allocated + " bytes for 100000 adds", allocated < 16 * 1024);
+    }
+
+    private static void fillAndDispose(final DisposeBag disposeBag, final Subscription[] subscriptions){
+        for (final Subscription subscription : subscriptions) {
+            disposeBag.add(subscription);
+        }
+        disposeBag.disposeAll();
+    }
+
+    private static Method allocatedBytesMethod(){
+        try {
+            final Class<?> threadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+            if (!threadMXBean.isInstance(ManagementFactory.getThreadMXBean())) {
+                return null;
+            }
+            return threadMXBean.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+}
@@ -5,12 +5,23 @@ import rx.Notification;
 import rx.Observable;
 import rx.Subscriber;
 import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
 import rx.observers.TestSubscriber;
 import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.*;
@@ -184,4 +195,587 @@ public class UnsafeObservableBuilderTest {
         }
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void longScript(){
+        final UnsafeObservableBuilder<Integer> builder = new UnsafeObservableBuilder<>();
+        final List<Integer> expected = new ArrayList<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            builder.emit(i);
+            expected.add(i);
+        }
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        builder.complete().build().unsafeSubscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(expected);
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void build_isUnaffectedByLaterEvents(){
+        final UnsafeObservableBuilder<String> builder = new UnsafeObservableBuilder<String>()
+                .emit("Hello");
+        final Observable<String> testObj = builder.build();
+
+        builder.emit("World").complete();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.unsafeSubscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+        subscriber.assertNoTerminalEvent();
+    }
+
+    @Test
+    public void backpressured_emitsOnlyRequested(){
+        final AtomicBoolean performed = new AtomicBoolean(false);
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .backpressured()
+                .emit(1)
+                .emit(2)
+                .perform(new Runnable() {
+                    @Override
+                    public void run() {
+                        performed.set(true);
+                    }
+                })
+                .emit(3)
+                .complete()
+                .build();
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>(0);
+        testObj.unsafeSubscribe(subscriber);
+        subscriber.assertNoValues();
+
+        subscriber.requestMore(1);
+        subscriber.assertReceivedOnNext(Collections.singletonList(1));
+
+        assertFalse(performed.get());
+
+        subscriber.requestMore(1);
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2));
+        assertTrue(performed.get());
+        subscriber.assertNoTerminalEvent();
+
+        subscriber.requestMore(1);
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2, 3));
+        subscriber.assertTerminalEvent();
+        subscriber.assertNoErrors();
+    }
+
+    @Test
+    public void backpressured_observeOn(){
+        final UnsafeObservableBuilder<Integer> builder = new UnsafeObservableBuilder<Integer>().backpressured();
+        final List<Integer> expected = new ArrayList<>(10000);
+        for (int i = 0; i < 10000; i++) {
+            builder.emit(i);
+            expected.add(i);
+        }
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        builder.complete()
+                .build()
+                .observeOn(Schedulers.newThread())
+                .unsafeSubscribe(subscriber);
+        subscriber.awaitTerminalEvent();
+
+        subscriber.assertNoErrors();
+        subscriber.assertReceivedOnNext(expected);
+    }
+
+    @Test
+    public void sleepOn_doesNotBlock(){
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .sleepOn(Schedulers.computation())
+                .emit("Hello")
+                .sleep(200)
+                .emit("World")
+                .complete()
+                .build();
+
+        final List<TestSubscriber<String>> subscribers = new ArrayList<>(1000);
+        final long startMills = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            final TestSubscriber<String> subscriber = new TestSubscriber<>();
+            testObj.unsafeSubscribe(subscriber);
+            subscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+            subscribers.add(subscriber);
+        }
+        assertTrue(System.currentTimeMillis() - startMills < 1000);
+
+        for (final TestSubscriber<String> subscriber : subscribers) {
+            subscriber.awaitTerminalEvent();
+            subscriber.assertNoErrors();
+            subscriber.assertReceivedOnNext(Arrays.asList("Hello", "World"));
+        }
+        assertTrue(System.currentTimeMillis() - startMills >= 200);
+    }
+
+    @Test
+    public void sleepOn_unsubscribeCancelsSleep() throws Exception {
+        final AtomicBoolean performed = new AtomicBoolean(false);
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .sleepOn(Schedulers.computation())
+                .sleep(100)
+                .perform(new Runnable() {
+                    @Override
+                    public void run() {
+                        performed.set(true);
+                    }
+                })
+                .build();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.unsafeSubscribe(subscriber);
+        subscriber.unsubscribe();
+        Thread.sleep(300);
+
+        assertFalse(performed.get());
+    }
+
+    @Test
+    public void build_virtualTime(){
+        final TestScheduler scheduler = new TestScheduler();
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .emit("Hello")
+                .sleep(TimeUnit.HOURS.toMillis(1))
+                .emit("World")
+                .sleep(TimeUnit.HOURS.toMillis(1))
+                .complete()
+                .build(scheduler);
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        final long startMills = System.currentTimeMillis();
+        testObj.unsafeSubscribe(subscriber);
+        subscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+
+        scheduler.advanceTimeBy(59, TimeUnit.MINUTES);
+        subscriber.assertReceivedOnNext(Collections.singletonList("Hello"));
+
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+        subscriber.assertReceivedOnNext(Arrays.asList("Hello", "World"));
+        subscriber.assertNoTerminalEvent();
+
+        scheduler.advanceTimeBy(1, TimeUnit.HOURS);
+        subscriber.assertTerminalEvent();
+        subscriber.assertNoErrors();
+        assertTrue(System.currentTimeMillis() - startMills < 1000);
+    }
+
+    @Test
+    public void build_virtualTimeOrdering(){
+        final TestScheduler scheduler = new TestScheduler();
+        final List<String> events = new ArrayList<>();
+
+        final Observable<String> slow = new UnsafeObservableBuilder<String>()
+                .sleep(300)
+                .emit("slow")
+                .build(scheduler);
+        final Observable<String> fast = new UnsafeObservableBuilder<String>()
+                .sleep(100)
+                .emit("fast")
+                .sleep(100)
+                .emit("fast again")
+                .build(scheduler);
+
+        final Action1<String> record = new Action1<String>() {
+            @Override
+            public void call(final String event) {
+                events.add(event);
+            }
+        };
+        slow.subscribe(record);
+        fast.subscribe(record);
+
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("fast", "fast again", "slow"), events);
+    }
+
+    @Test
+    public void emitArray_copiesItems(){
+        final Integer[] items = {1, 2};
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .emitArray(items)
+                .complete()
+                .build();
+        items[0] = 3;
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2));
+    }
+
+    @Test
+    public void bulkEmissions(){
+        final AtomicInteger generated = new AtomicInteger();
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .emitAll(Arrays.asList(1, 2))
+                .emitArray(3, 4)
+                .emitRange(5, 2, new Func1<Integer, Integer>() {
+                    @Override
+                    public Integer call(final Integer i) {
+                        return i;
+                    }
+                })
+                .generate(2, new Func0<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return 7 + generated.getAndIncrement();
+                    }
+                })
+                .complete()
+                .build();
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        testObj.unsafeSubscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void bulkEmissions_areLazy(){
+        final AtomicInteger mapped = new AtomicInteger();
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .emitRange(0, 1000000, new Func1<Integer, Integer>() {
+                    @Override
+                    public Integer call(final Integer i) {
+                        mapped.incrementAndGet();
+                        return i;
+                    }
+                })
+                .complete()
+                .build();
+        assertEquals(0, mapped.get());
+
+        final AtomicInteger sum = new AtomicInteger();
+        testObj.subscribe(new Action1<Integer>() {
+            @Override
+            public void call(final Integer i) {
+                sum.incrementAndGet();
+            }
+        });
+
+        assertEquals(1000000, mapped.get());
+        assertEquals(1000000, sum.get());
+    }
+
+    @Test
+    public void bulkEmissions_backpressured(){
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .backpressured()
+                .emitAll(Collections.<Integer>emptyList())
+                .emitAll(Arrays.asList(1, 2, 3))
+                .emitArray(4, 5)
+                .complete()
+                .build();
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>(2);
+        testObj.unsafeSubscribe(subscriber);
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2));
+
+        subscriber.requestMore(2);
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2, 3, 4));
+        subscriber.assertNoTerminalEvent();
+
+        subscriber.requestMore(1);
+        subscriber.assertReceivedOnNext(Arrays.asList(1, 2, 3, 4, 5));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void repeat(){
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .emit("start")
+                .repeat(2, new UnsafeObservableBuilder<String>()
+                        .emit("a")
+                        .repeat(2, new UnsafeObservableBuilder<String>().emit("b"))
+                        .repeat(0, new UnsafeObservableBuilder<String>().emit("never")))
+                .complete()
+                .build();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.unsafeSubscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("start", "a", "b", "b", "a", "b", "b"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void repeat_backpressuredVirtualTime(){
+        final TestScheduler scheduler = new TestScheduler();
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .backpressured()
+                .repeat(100000, new UnsafeObservableBuilder<Integer>()
+                        .emit(1)
+                        .sleep(1))
+                .complete()
+                .build(scheduler);
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>(10);
+        testObj.unsafeSubscribe(subscriber);
+
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        assertEquals(10, subscriber.getOnNextEvents().size());
+
+        subscriber.requestMore(Long.MAX_VALUE);
+        scheduler.advanceTimeBy(100, TimeUnit.SECONDS);
+        assertEquals(100000, subscriber.getOnNextEvents().size());
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void loop_untilUnsubscribed(){
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .loop(new UnsafeObservableBuilder<String>().emit("a").emit("b"))
+                .build();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.take(5).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b", "a", "b", "a"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void fork(){
+        final UnsafeObservableBuilder<String> base = new UnsafeObservableBuilder<String>()
+                .emit("a")
+                .emit("b");
+        final UnsafeObservableBuilder<String> first = base.fork().emit("first");
+        final UnsafeObservableBuilder<String> second = base.fork().emit("second");
+        base.emit("base");
+
+        assertEquals(Arrays.asList("a", "b", "first"), values(first.build()));
+        assertEquals(Arrays.asList("a", "b", "second"), values(second.build()));
+        assertEquals(Arrays.asList("a", "b", "base"), values(base.build()));
+        assertEquals(Arrays.asList("a", "b", "first", "again"), values(first.fork().emit("again").build()));
+    }
+
+    @Test
+    public void fork_concurrently() throws Exception {
+        final UnsafeObservableBuilder<Integer> base = new UnsafeObservableBuilder<>();
+        for (int i = 0; i < 100; i++) {
+            base.emit(i);
+        }
+        final Observable<Integer> built = base.build();
+
+        final int threadCount = 8;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicInteger failures = new AtomicInteger();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int variant = 0; variant < 100; variant++) {
+                            final UnsafeObservableBuilder<Integer> fork = base.fork();
+                            for (int i = 0; i < 20; i++) {
+                                fork.emit(-thread);
+                            }
+
+                            final List<Integer> values = values(fork.build());
+                            if (values.size() != 120 || values.get(99) != 99 || values.get(119) != -thread
+                                    || values(built).size() != 100) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (final Throwable t) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        done.await();
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void cancellable_wakesSleepOnUnsubscribe() throws Exception {
+        final AtomicBoolean performed = new AtomicBoolean();
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .cancellable()
+                .emit("a")
+                .sleep(10000)
+                .perform(new Runnable() {
+                    @Override
+                    public void run() {
+                        performed.set(true);
+                    }
+                })
+                .build();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (final InterruptedException ignored) {
+                }
+                subscriber.unsubscribe();
+            }
+        }).start();
+
+        final long start = System.nanoTime();
+        testObj.subscribe(subscriber);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(performed.get());
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+    }
+
+    @Test
+    public void cancellable_stopsBulkEmission(){
+        final AtomicInteger mapped = new AtomicInteger();
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .cancellable()
+                .emitRange(0, 1000000, new Func1<Integer, Integer>() {
+                    @Override
+                    public Integer call(final Integer integer) {
+                        mapped.incrementAndGet();
+                        return integer;
+                    }
+                })
+                .build();
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        testObj.take(5).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList(0, 1, 2, 3, 4));
+        assertEquals(5, mapped.get());
+    }
+
+    @Test
+    public void notCancellable_runsToTheEnd(){
+        final AtomicBoolean performed = new AtomicBoolean();
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .emit("a")
+                .perform(new Runnable() {
+                    @Override
+                    public void run() {
+                        performed.set(true);
+                    }
+                })
+                .build();
+
+        testObj.take(1).subscribe(new TestSubscriber<String>());
+
+        assertTrue(performed.get());
+    }
+
+    @Test
+    public void on_movesFurtherEventsToScheduler(){
+        final ExecutorService first = Executors.newSingleThreadExecutor();
+        final ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+            final Runnable recordThread = new Runnable() {
+                @Override
+                public void run() {
+                    threads.add(Thread.currentThread());
+                }
+            };
+
+            final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                    .perform(recordThread)
+                    .on(Schedulers.from(first))
+                    .emit(1)
+                    .perform(recordThread)
+                    .on(Schedulers.from(second))
+                    .emit(2)
+                    .perform(recordThread)
+                    .complete()
+                    .build();
+
+            final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+            testObj.subscribe(subscriber);
+            subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+            subscriber.assertReceivedOnNext(Arrays.asList(1, 2));
+            assertEquals(3, threads.size());
+            assertEquals(Thread.currentThread(), threads.get(0));
+            assertNotEquals(threads.get(0), threads.get(1));
+            assertNotEquals(threads.get(1), threads.get(2));
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    public void on_virtualTime(){
+        final TestScheduler scheduler = new TestScheduler();
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .emit("a")
+                .on(scheduler)
+                .emit("b")
+                .complete()
+                .build();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+
+        scheduler.triggerActions();
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b"));
+        subscriber.assertTerminalEvent();
+    }
+
+    @Test
+    public void on_keepsOrderAcrossRepeatedHops(){
+        final UnsafeObservableBuilder<Integer> block = new UnsafeObservableBuilder<Integer>()
+                .on(Schedulers.computation())
+                .emit(1)
+                .on(Schedulers.io())
+                .emit(2);
+        final Observable<Integer> testObj = new UnsafeObservableBuilder<Integer>()
+                .repeat(500, block)
+                .complete()
+                .build();
+
+        final TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        testObj.subscribe(subscriber);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        final List<Integer> values = subscriber.getOnNextEvents();
+        assertEquals(1000, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i % 2 == 0 ? 1 : 2, (int) values.get(i));
+        }
+        subscriber.assertNoErrors();
+    }
+
+    @Test
+    public void on_backpressured(){
+        final TestScheduler scheduler = new TestScheduler();
+        final Observable<String> testObj = new UnsafeObservableBuilder<String>()
+                .backpressured()
+                .on(scheduler)
+                .emit("a")
+                .emit("b")
+                .build();
+
+        final TestSubscriber<String> subscriber = new TestSubscriber<>(1);
+        testObj.subscribe(subscriber);
+        scheduler.triggerActions();
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+
+        subscriber.requestMore(1);
+        subscriber.assertReceivedOnNext(Collections.singletonList("a"));
+        scheduler.triggerActions();
+        subscriber.assertReceivedOnNext(Arrays.asList("a", "b"));
+    }
+
+    private static <T> List<T> values(final Observable<T> observable){
+        final TestSubscriber<T> subscriber = new TestSubscriber<>();
+        observable.unsafeSubscribe(subscriber);
+        return subscriber.getOnNextEvents();
+    }
+}